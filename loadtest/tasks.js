@@ -0,0 +1,45 @@
+// Carga sobre los endpoints de tareas para comparar el modo de hilos de plataforma
+// con el modo virtual threads. Uso (ver README):
+//   k6 run -e BASE_URL=http://localhost:8080 -e VUS=500 loadtest/tasks.js
+// Todas las VUs comparten un usuario: la app tiene que correr con --rate-limit.enabled=false,
+// si no, los límites por usuario devuelven 429 y se mide el rate limit en lugar de los hilos.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+export const options = {
+    scenarios: {
+        tasks: {
+            executor: 'constant-vus',
+            vus: Number(__ENV.VUS || 200),
+            duration: __ENV.DURATION || '60s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const username = `load_${Date.now()}`;
+    const body = JSON.stringify({ username, password: 'secret123' });
+    const res = http.post(`${BASE_URL}/auth/register`, body, { headers: JSON_HEADERS });
+    const token = res.json('token');
+    const auth = { ...JSON_HEADERS, Authorization: `Bearer ${token}` };
+    for (let i = 0; i < 50; i++) {
+        http.post(`${BASE_URL}/tasks`, JSON.stringify({ title: `Tarea ${i}` }), { headers: auth });
+    }
+    return { auth };
+}
+
+export default function (data) {
+    // 90% lecturas, 10% escrituras
+    if (Math.random() < 0.9) {
+        const res = http.get(`${BASE_URL}/tasks?size=50`, { headers: data.auth, tags: { name: 'GET /tasks' } });
+        check(res, { 'list 200': (r) => r.status === 200 });
+    } else {
+        const res = http.post(`${BASE_URL}/tasks`, JSON.stringify({ title: 'Carga' }),
+            { headers: data.auth, tags: { name: 'POST /tasks' } });
+        check(res, { 'create 200': (r) => r.status === 200 });
+    }
+}
@@ -0,0 +1,110 @@
+package com.tavio.lemon.benchmark;
+
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.config.JwtKeyRing;
+import com.tavio.lemon.web.config.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Costo de JwtUtil: firma, verificación y lectura del subject, por algoritmo.
+ * cacheSize = 0 mide la verificación completa en cada llamada; con caché, el camino rápido.
+ * ES256 y RS256 firman con una clave del key-ring generada en el setup; HS256 con el secreto.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtBenchmark {
+
+    static final String SECRET = "esta-es-una-clave-de-prueba-para-los-benchmarks";
+
+    @Param({"0", "10000"})
+    public long cacheSize;
+
+    @Param({"HS256", "ES256", "RS256"})
+    public String algorithm;
+
+    private JwtUtil jwtUtil;
+    private UserDetailsImpl principal;
+    private String token;
+    private Path keysDir;
+
+    @Setup
+    public void setUp() throws Exception {
+        if ("HS256".equals(algorithm)) {
+            jwtUtil = new JwtUtil(SECRET, cacheSize);
+        } else {
+            keysDir = Files.createTempDirectory("jwt-keys");
+            writeKeyPair(keysDir, algorithm.toLowerCase(), keyPair(algorithm));
+            jwtUtil = new JwtUtil(new JwtKeyRing(SECRET, keysDir.toString()), cacheSize, JwtUtil.DEFAULT_ACCESS_TTL);
+        }
+        principal = UserDetailsImpl.build(UserEntity.builder()
+                .id(7L)
+                .username("pepito")
+                .password("pwd")
+                .role(Role.USER)
+                .build());
+        token = jwtUtil.generateToken(principal);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (keysDir != null) {
+            try (Stream<Path> files = Files.list(keysDir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(keysDir);
+        }
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(principal);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsernameFromToken() {
+        return jwtUtil.getUsernameFromToken(token);
+    }
+
+    private static KeyPair keyPair(String algorithm) throws Exception {
+        if ("ES256".equals(algorithm)) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        }
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static void writeKeyPair(Path dir, String kid, KeyPair pair) throws Exception {
+        writePem(dir.resolve(kid + ".pub"), "PUBLIC KEY", pair.getPublic().getEncoded());
+        writePem(dir.resolve(kid + ".key"), "PRIVATE KEY", pair.getPrivate().getEncoded());
+    }
+
+    private static void writePem(Path file, String type, byte[] der) throws Exception {
+        String body = Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(der);
+        Files.writeString(file, "-----BEGIN " + type + "-----\n" + body + "\n-----END " + type + "-----\n");
+    }
+}
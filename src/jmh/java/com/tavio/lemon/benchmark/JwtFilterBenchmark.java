@@ -0,0 +1,98 @@
+package com.tavio.lemon.benchmark;
+
+import com.tavio.lemon.domain.repository.RefreshTokenRepository;
+import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.domain.service.SessionRevocationRegistry;
+import com.tavio.lemon.domain.service.TokenVersionRegistry;
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.config.JwtFilter;
+import com.tavio.lemon.web.config.JwtUtil;
+import com.tavio.lemon.web.config.RateLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Camino completo de JwtFilter para una request autenticada, con el
+ * UserDetailsService reemplazado por un stub en memoria (sin base de datos).
+ * Con stateless=true el principal sale de los claims y solo se consulta la tabla de versiones.
+ * En ambos modos el token trae sid y se chequea contra las sesiones revocadas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtFilterBenchmark {
+
+    @Param({"0", "10000"})
+    public long cacheSize;
+
+    @Param({"false", "true"})
+    public boolean stateless;
+
+    private JwtFilter filter;
+    private String authHeader;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil(JwtBenchmark.SECRET, cacheSize);
+        UserDetailsImpl principal = UserDetailsImpl.build(UserEntity.builder()
+                .id(7L)
+                .username("pepito")
+                .password("pwd")
+                .role(Role.USER)
+                .build());
+        UserDetailsService users = username -> principal;
+        UserRepository repo = Mockito.mock(UserRepository.class);
+        when(repo.findTokenStates()).thenReturn(List.of());
+        TokenVersionRegistry tokenVersions = new TokenVersionRegistry(repo);
+        tokenVersions.update(UserEntity.builder().id(7L).enabled(true).build());
+        // Otras 10.000 sesiones revocadas: el token del benchmark pasa por el filtro de Bloom poblado
+        SessionRevocationRegistry sessions = new SessionRevocationRegistry(Mockito.mock(RefreshTokenRepository.class), 100_000);
+        Instant expiresAt = Instant.now().plus(Duration.ofDays(30));
+        for (long id = 1; id <= 10_000; id++) {
+            sessions.revoke(id, expiresAt);
+        }
+
+        filter = new JwtFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "userDetailsService", users);
+        ReflectionTestUtils.setField(filter, "tokenVersions", tokenVersions);
+        ReflectionTestUtils.setField(filter, "sessions", sessions);
+        ReflectionTestUtils.setField(filter, "stateless", stateless);
+        ReflectionTestUtils.setField(filter, "rateLimit",
+                new RateLimitFilter(true, "10/1m", "1000000000/1s", "1000000000/1s", "30/1m", 100_000));
+        filter.setMeterRegistry(new SimpleMeterRegistry());
+        authHeader = "Bearer " + jwtUtil.generateToken(principal, 20_000L);
+    }
+
+    @Benchmark
+    public Object doFilterInternal() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tasks");
+        request.addHeader("Authorization", authHeader);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.tavio.lemon.benchmark;
+
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.config.RateLimitFilter;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de RateLimitFilter para una request autenticada que pasa el límite.
+ * Con varios hilos sobre el mismo usuario mide además la contención del CAS.
+ * Request y response se crean en el setup: solo se mide el filtro.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RateLimitFilterBenchmark {
+
+    private RateLimitFilter filter;
+    private UsernamePasswordAuthenticationToken authentication;
+    private final FilterChain chain = (req, res) -> { };
+
+    @State(Scope.Thread)
+    public static class Exchange {
+        MockHttpServletRequest request;
+        MockHttpServletResponse response;
+
+        @Setup
+        public void setUp() {
+            request = new MockHttpServletRequest("GET", "/tasks");
+            request.setRemoteAddr("10.0.0.1");
+            response = new MockHttpServletResponse();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        // Límite alto: todas las requests pasan y se mide el camino habitual
+        filter = new RateLimitFilter(true, "10/1m", "1000000000/1s", "1000000000/1s", "30/1m", 100_000);
+        UserDetailsImpl principal = UserDetailsImpl.build(UserEntity.builder()
+                .id(7L)
+                .username("pepito")
+                .role(Role.USER)
+                .build());
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void doFilter(Exchange exchange) throws Exception {
+        run(exchange);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void doFilterConcurrente(Exchange exchange) throws Exception {
+        run(exchange);
+    }
+
+    private void run(Exchange exchange) throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        // OncePerRequestFilter marca la request; se limpia para que el filtro corra en cada iteración
+        exchange.request.clearAttributes();
+        filter.doFilter(exchange.request, exchange.response, chain);
+    }
+}
@@ -0,0 +1,82 @@
+package com.tavio.lemon.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tavio.lemon.entity.TaskEntity;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.web.dto.TaskDto;
+import com.tavio.lemon.web.mapper.TaskMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapeo entidad/DTO y serialización Jackson de listados de tareas de distintos tamaños.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TaskMapperBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private UserEntity user;
+    private List<TaskEntity> entities;
+    private List<TaskDto> dtos;
+    private ObjectMapper mapper;
+
+    @Setup
+    public void setUp() {
+        user = UserEntity.builder().id(7L).username("pepito").build();
+        LocalDateTime now = LocalDateTime.of(2025, 5, 22, 12, 0);
+        entities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entities.add(TaskEntity.builder()
+                    .id((long) i)
+                    .title("Tarea " + i)
+                    .description("Descripción de la tarea número " + i)
+                    .completed(i % 3 == 0)
+                    .createdAt(now.minusMinutes(i))
+                    .dueDate(now.plusDays(i % 30))
+                    .user(user)
+                    .build());
+        }
+        dtos = entities.stream().map(TaskMapper::toDto).toList();
+        // Misma configuración de fechas que usa Spring Boot por defecto
+        mapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    @Benchmark
+    public List<TaskDto> toDto() {
+        List<TaskDto> out = new ArrayList<>(entities.size());
+        for (TaskEntity e : entities) {
+            out.add(TaskMapper.toDto(e));
+        }
+        return out;
+    }
+
+    @Benchmark
+    public List<TaskEntity> toEntity() {
+        List<TaskEntity> out = new ArrayList<>(dtos.size());
+        for (TaskDto d : dtos) {
+            out.add(TaskMapper.toEntity(d, user));
+        }
+        return out;
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws Exception {
+        return mapper.writeValueAsBytes(dtos);
+    }
+}
@@ -0,0 +1,20 @@
+package com.tavio.lemon.domain.reminder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/** Sink por defecto: solo deja el recordatorio en el log. */
+@Component
+@ConditionalOnProperty(name = "tasks.reminders.sink", havingValue = "log", matchIfMissing = true)
+public class LoggingReminderSink implements TaskReminderSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingReminderSink.class);
+
+    @Override
+    public void send(TaskReminder reminder) {
+        log.info("Recordatorio: la tarea {} ({}) del usuario {} vence {}",
+                reminder.taskId(), reminder.title(), reminder.userId(), reminder.dueDate());
+    }
+}
@@ -0,0 +1,7 @@
+package com.tavio.lemon.domain.reminder;
+
+import java.time.LocalDateTime;
+
+/** Recordatorio de una tarea abierta que vence en {@code dueDate}. */
+public record TaskReminder(Long taskId, Long userId, String title, LocalDateTime dueDate) {
+}
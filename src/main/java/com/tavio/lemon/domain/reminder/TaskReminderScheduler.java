@@ -0,0 +1,348 @@
+package com.tavio.lemon.domain.reminder;
+
+import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.service.TaskChangeEvent;
+import com.tavio.lemon.web.dto.TaskDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Envía un recordatorio {@code tasks.reminders.lead} antes del vencimiento de cada tarea abierta.
+ * <p>
+ * Los recordatorios pendientes viven en una {@link TimingWheel}: agendar y cancelar son O(1)
+ * y cada tick solo toca lo que vence. No se carga la tabla entera: se leen por ventanas de
+ * {@code due_date} sobre idx_tasks_open_due_date solo los que disparan dentro de
+ * {@code tasks.reminders.horizon} (eso acota la memoria), y la ventana avanza cada
+ * {@code tasks.reminders.load-interval}. Lo que cambia dentro de la ventana ya cargada llega
+ * por TaskChangeEvent. Antes de enviar se relee el lote por id: una tarea completada, borrada o
+ * con otro vencimiento (carrera entre la lectura y un evento) no se envía con datos viejos.
+ */
+@Component
+public class TaskReminderScheduler implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskReminderScheduler.class);
+    // 4 niveles de 64 casilleros: 2^24 ticks (194 días con ticks de 1s)
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_LEVELS = 4;
+    private static final int BATCH_SIZE = 1000;
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    // Vencimiento con el que se agendó: al disparar se compara con el actual
+    private record Pending(Long taskId, LocalDateTime dueDate) {
+    }
+
+    private final TaskRepository repo;
+    private final TaskReminderSink sink;
+    private final Duration lead;
+    private final Duration horizon;
+    private final long tickMs;
+    private final ScheduledExecutorService ticker;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    // Rueda, índice por tarea y ventana cargada: todo bajo el lock de this
+    private final TimingWheel<Pending> wheel;
+    private final Map<Long, TimingWheel.Timer<Pending>> byTask = new HashMap<>();
+    // Las tareas abiertas que vencen antes de esto ya están en la rueda (o ya dispararon)
+    private LocalDateTime loadedUntil;
+    // Reabiertas por el write-behind, a la espera de leer su vencimiento en el próximo tick
+    private final Map<Long, TaskChangeEvent> reopened = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TaskReminderScheduler(TaskRepository repo,
+                                 TaskReminderSink sink,
+                                 @Value("${tasks.reminders.lead:15m}") Duration lead,
+                                 @Value("${tasks.reminders.horizon:6h}") Duration horizon,
+                                 @Value("${tasks.reminders.tick:1s}") Duration tick) {
+        this.repo = repo;
+        this.sink = sink;
+        this.lead = lead;
+        this.horizon = horizon;
+        this.tickMs = tick.toMillis();
+        this.wheel = new TimingWheel<>(WHEEL_BITS, WHEEL_LEVELS, tickOf(Instant.now()));
+        if (lead.plus(horizon).toMillis() / tickMs >= wheel.span()) {
+            throw new IllegalStateException("tasks.reminders.lead + horizon excede lo que cubre la rueda: "
+                    + Duration.ofMillis(wheel.span() * tickMs));
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "task-reminders");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        loadAhead();
+        ticker.scheduleAtFixedRate(this::advanceSafely, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${tasks.reminders.load-interval:1m}",
+            initialDelayString = "${tasks.reminders.load-interval:1m}")
+    public void loadAhead() {
+        loadAhead(Instant.now());
+    }
+
+    /**
+     * Agenda las tareas abiertas que vencen entre lo ya cargado y {@code now + lead + horizon},
+     * en páginas por (dueDate, id). Devuelve cuántas leyó.
+     */
+    public int loadAhead(Instant now) {
+        LocalDateTime to = toLocal(now.plus(lead).plus(horizon));
+        LocalDateTime from;
+        synchronized (this) {
+            // Al arrancar, lo ya vencido no se recuerda
+            from = loadedUntil != null ? loadedUntil : toLocal(now);
+            if (!to.isAfter(from)) {
+                return 0;
+            }
+            // Se corre antes de leer: los eventos que lleguen durante la lectura ya se agendan solos
+            loadedUntil = to;
+        }
+        int loaded = 0;
+        try {
+            LocalDateTime afterDue = from;
+            long afterId = 0;
+            List<TaskRepository.ReminderRow> page;
+            do {
+                page = repo.findOpenDueBetween(from, to, afterDue, afterId, Limit.of(BATCH_SIZE));
+                synchronized (this) {
+                    for (TaskRepository.ReminderRow row : page) {
+                        // Si ya hay uno, lo agendó un evento más nuevo que esta lectura
+                        if (!byTask.containsKey(row.getId())) {
+                            schedule(row.getId(), row.getDueDate());
+                        }
+                    }
+                }
+                if (!page.isEmpty()) {
+                    TaskRepository.ReminderRow last = page.get(page.size() - 1);
+                    afterDue = last.getDueDate();
+                    afterId = last.getId();
+                }
+                loaded += page.size();
+            } while (page.size() == BATCH_SIZE);
+        } catch (RuntimeException ex) {
+            // La próxima carga repite la ventana; agendar lo ya agendado no duplica
+            synchronized (this) {
+                if (to.equals(loadedUntil)) {
+                    loadedUntil = from;
+                }
+            }
+            throw ex;
+        }
+        log.debug("Recordatorios cargados hasta {}: {}", to, loaded);
+        return loaded;
+    }
+
+    /**
+     * Después del commit, igual que TaskEventHub: un cambio revertido no toca la rueda. Corre en el
+     * hilo que publicó (el flush del write-behind, por ejemplo), así que no va a la base: las
+     * tareas reabiertas se buscan en lote en el próximo tick. Un error se loguea y no se propaga.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChange(TaskChangeEvent change) {
+        Long taskId = change.getTaskId();
+        try {
+            if (change.getType() == TaskChangeEvent.Type.DELETED) {
+                reopened.remove(taskId);
+                reschedule(taskId, null);
+                return;
+            }
+            TaskDto task = change.getTask();
+            if (task == null) {
+                // Cambio de completed del write-behind: el evento trae el valor pero no el vencimiento.
+                // Completar solo cancela; reabrir (o un evento sin el valor) necesita leer la tarea
+                if (Boolean.TRUE.equals(change.getCompleted())) {
+                    reopened.remove(taskId);
+                    reschedule(taskId, null);
+                } else {
+                    reopened.put(taskId, change);
+                }
+                return;
+            }
+            reopened.remove(taskId);
+            reschedule(taskId, task.isCompleted() ? null : task.getDueDate());
+        } catch (RuntimeException ex) {
+            log.warn("No se pudo actualizar el recordatorio de la tarea {}", taskId, ex);
+        }
+    }
+
+    /** Dispara lo vencido hasta {@code now}. Devuelve cuántos recordatorios envió. */
+    public int advance(Instant now) {
+        resolveReopened();
+        List<Pending> expired;
+        synchronized (this) {
+            expired = wheel.advanceTo(tickOf(now));
+            for (Pending pending : expired) {
+                byTask.computeIfPresent(pending.taskId(), (id, timer) -> timer.value() == pending ? null : timer);
+            }
+        }
+        int delivered = 0;
+        for (int from = 0; from < expired.size(); from += BATCH_SIZE) {
+            delivered += deliver(expired.subList(from, Math.min(from + BATCH_SIZE, expired.size())), now);
+        }
+        return delivered;
+    }
+
+    public synchronized int pendingCount() {
+        return wheel.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tasks.reminders.pending", this, TaskReminderScheduler::pendingCount)
+                .description("Recordatorios agendados en memoria")
+                .register(registry);
+        FunctionCounter.builder("tasks.reminders.sent", sent, LongAdder::sum)
+                .description("Recordatorios entregados al sink")
+                .register(registry);
+        FunctionCounter.builder("tasks.reminders.failed", failed, LongAdder::sum)
+                .description("Recordatorios en que el sink lanzó una excepción")
+                .register(registry);
+    }
+
+    // Un SELECT ... IN por hasta BATCH_SIZE tareas reabiertas. Si falla, quedan para el próximo tick
+    private void resolveReopened() {
+        if (reopened.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, TaskChangeEvent>> entries = List.copyOf(reopened.entrySet());
+        for (int from = 0; from < entries.size(); from += BATCH_SIZE) {
+            List<Map.Entry<Long, TaskChangeEvent>> chunk =
+                    entries.subList(from, Math.min(from + BATCH_SIZE, entries.size()));
+            Map<Long, LocalDateTime> open;
+            try {
+                open = repo.findOpenByIds(chunk.stream().map(Map.Entry::getKey).toList()).stream()
+                        .collect(Collectors.toMap(TaskRepository.ReminderRow::getId,
+                                TaskRepository.ReminderRow::getDueDate));
+            } catch (RuntimeException ex) {
+                log.warn("No se pudieron leer {} tareas reabiertas; se reintenta en el próximo tick", chunk.size(), ex);
+                return;
+            }
+            synchronized (this) {
+                for (Map.Entry<Long, TaskChangeEvent> entry : chunk) {
+                    // remove(key, value): si llegó otro evento de la tarea mientras leíamos, manda ese
+                    if (reopened.remove(entry.getKey(), entry.getValue())) {
+                        reschedule(entry.getKey(), open.get(entry.getKey()));
+                    }
+                }
+            }
+        }
+    }
+
+    private int deliver(List<Pending> batch, Instant now) {
+        Map<Long, TaskRepository.ReminderRow> current;
+        try {
+            current = repo.findOpenByIds(batch.stream().map(Pending::taskId).toList()).stream()
+                    .collect(Collectors.toMap(TaskRepository.ReminderRow::getId, Function.identity()));
+        } catch (RuntimeException ex) {
+            log.warn("No se pudieron verificar {} recordatorios; se reintenta en {}", batch.size(), RETRY_DELAY, ex);
+            synchronized (this) {
+                long retry = tickOf(now.plus(RETRY_DELAY));
+                for (Pending pending : batch) {
+                    if (!byTask.containsKey(pending.taskId())) {
+                        track(pending, retry);
+                    }
+                }
+            }
+            return 0;
+        }
+        int delivered = 0;
+        for (Pending pending : batch) {
+            TaskRepository.ReminderRow row = current.get(pending.taskId());
+            if (row == null) {
+                // Completada o borrada después de agendarla
+                continue;
+            }
+            if (!row.getDueDate().equals(pending.dueDate())) {
+                reschedule(row.getId(), row.getDueDate());
+                continue;
+            }
+            try {
+                sink.send(new TaskReminder(row.getId(), row.getUserId(), row.getTitle(), row.getDueDate()));
+                sent.increment();
+                delivered++;
+            } catch (RuntimeException ex) {
+                failed.increment();
+                log.warn("Falló el envío del recordatorio de la tarea {}", row.getId(), ex);
+            }
+        }
+        return delivered;
+    }
+
+    // Reemplaza lo agendado para la tarea; null o fuera de la ventana cargada = nada que agendar
+    private synchronized void reschedule(Long taskId, LocalDateTime dueDate) {
+        wheel.cancel(byTask.remove(taskId));
+        if (dueDate != null && loadedUntil != null && dueDate.isBefore(loadedUntil)) {
+            schedule(taskId, dueDate);
+        }
+    }
+
+    private void schedule(Long taskId, LocalDateTime dueDate) {
+        long dueTick = tickOf(toInstant(dueDate));
+        // Ya vencida: no tiene sentido recordarla
+        if (dueTick < wheel.currentTick()) {
+            return;
+        }
+        track(new Pending(taskId, dueDate), tickOf(toInstant(dueDate).minus(lead)));
+    }
+
+    private void track(Pending pending, long tick) {
+        TimingWheel.Timer<Pending> timer = wheel.schedule(pending, tick);
+        if (timer != null) {
+            byTask.put(pending.taskId(), timer);
+        }
+    }
+
+    private void advanceSafely() {
+        try {
+            advance(Instant.now());
+        } catch (RuntimeException ex) {
+            log.warn("Falló el avance de los recordatorios; se reintenta en el próximo tick", ex);
+        }
+    }
+
+    private long tickOf(Instant instant) {
+        return instant.toEpochMilli() / tickMs;
+    }
+
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,11 @@
+package com.tavio.lemon.domain.reminder;
+
+/**
+ * Destino de los recordatorios (mail, push, cola...). Se elige con {@code tasks.reminders.sink};
+ * por defecto {@link LoggingReminderSink}. Lo llama un único hilo, el de TaskReminderScheduler:
+ * una implementación lenta atrasa los recordatorios siguientes, así que conviene que solo encole.
+ */
+public interface TaskReminderSink {
+
+    void send(TaskReminder reminder);
+}
@@ -0,0 +1,170 @@
+package com.tavio.lemon.domain.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rueda de tiempos jerárquica (como la de los timers del kernel de Linux): {@code levels}
+ * ruedas de {@code 2^bits} casilleros, donde cada casillero del nivel {@code i} abarca
+ * {@code 2^(bits*i)} ticks. Una entrada va al nivel más bajo que alcanza su vencimiento; cuando
+ * el nivel 0 da la vuelta, el casillero que toca del nivel siguiente se redistribuye hacia
+ * abajo. Agregar y cancelar son O(1) (listas doblemente enlazadas) y avanzar un tick solo
+ * toca las entradas que vencen o bajan de nivel, sin recorrer las pendientes.
+ * <p>
+ * El tiempo se mide en ticks absolutos. No es thread-safe: la sincronización queda a cargo
+ * de quien la usa.
+ */
+public final class TimingWheel<T> {
+
+    /** Entrada agendada; sirve para cancelarla. */
+    public static final class Timer<T> {
+        private final T value;
+        private long deadline;
+        private Timer<T> prev;
+        private Timer<T> next;
+
+        private Timer(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        public T value() {
+            return value;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+
+        public boolean isPending() {
+            return prev != null;
+        }
+    }
+
+    private final int bits;
+    private final long mask;
+    private final int levels;
+    // slots[nivel][casillero]: nodo centinela de una lista circular
+    private final Timer<T>[][] slots;
+    // Próximo tick a procesar: todo lo anterior ya venció
+    private long now;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(int bits, int levels, long startTick) {
+        if (bits < 1 || levels < 1 || (long) bits * levels >= 63) {
+            throw new IllegalArgumentException("Rueda inválida: " + levels + " niveles de 2^" + bits);
+        }
+        this.bits = bits;
+        this.mask = (1L << bits) - 1;
+        this.levels = levels;
+        this.slots = new Timer[levels][1 << bits];
+        for (Timer<T>[] level : slots) {
+            for (int i = 0; i < level.length; i++) {
+                Timer<T> head = new Timer<>(null, -1);
+                head.prev = head;
+                head.next = head;
+                level[i] = head;
+            }
+        }
+        this.now = startTick;
+    }
+
+    /** Ticks hacia adelante que la rueda puede representar. */
+    public long span() {
+        return 1L << (bits * levels);
+    }
+
+    /** Próximo tick a procesar. */
+    public long currentTick() {
+        return now;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Agenda {@code value} para {@code deadline}; si ya pasó, vence en el próximo tick.
+     * @return la entrada, o null si el vencimiento está más allá de {@link #span()}.
+     */
+    public Timer<T> schedule(T value, long deadline) {
+        Timer<T> timer = new Timer<>(value, Math.max(deadline, now));
+        if (timer.deadline - now >= span()) {
+            return null;
+        }
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    /** Cancela una entrada pendiente; false si ya venció o se había cancelado. */
+    public boolean cancel(Timer<T> timer) {
+        if (timer == null || !timer.isPending()) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    /** Procesa los ticks hasta {@code tick} inclusive y devuelve lo vencido, en orden. */
+    public List<T> advanceTo(long tick) {
+        List<T> expired = new ArrayList<>();
+        while (now <= tick) {
+            // Al dar la vuelta el nivel 0 baja el casillero que toca del nivel 1; si ese
+            // nivel también dio la vuelta, el del nivel 2, y así
+            if ((now & mask) == 0) {
+                for (int level = 1; level < levels; level++) {
+                    int index = (int) ((now >>> (bits * level)) & mask);
+                    cascade(slots[level][index]);
+                    if (index != 0) {
+                        break;
+                    }
+                }
+            }
+            Timer<T> head = slots[0][(int) (now & mask)];
+            for (Timer<T> t = head.next; t != head; ) {
+                Timer<T> next = t.next;
+                unlink(t);
+                size--;
+                expired.add(t.value);
+                t = next;
+            }
+            now++;
+        }
+        return expired;
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.deadline - now;
+        int level = 0;
+        while (level < levels - 1 && delta >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        int index = (int) ((timer.deadline >>> (bits * level)) & mask);
+        Timer<T> head = slots[level][index];
+        timer.prev = head.prev;
+        timer.next = head;
+        head.prev.next = timer;
+        head.prev = timer;
+    }
+
+    private void cascade(Timer<T> head) {
+        Timer<T> t = head.next;
+        head.next = head;
+        head.prev = head;
+        while (t != head) {
+            Timer<T> next = t.next;
+            place(t);
+            t = next;
+        }
+    }
+
+    private static <T> void unlink(Timer<T> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.tavio.lemon.domain.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * Motor de la base, para las consultas nativas que cambian entre Postgres y H2 (tests).
+ */
+final class Dialects {
+
+    private Dialects() {
+    }
+
+    static boolean isPostgres(EntityManager em) {
+        return em.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect() instanceof PostgreSQLDialect;
+    }
+}
@@ -0,0 +1,59 @@
+package com.tavio.lemon.domain.repository;
+
+import com.tavio.lemon.entity.RefreshTokenEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshTokenEntity, Long> {
+
+    // Lo mínimo para la tabla de revocaciones en memoria (ver SessionRevocationRegistry)
+    interface SessionState {
+        Long getId();
+        Instant getExpiresAt();
+    }
+
+    /**
+     * Rota el token solo si sigue siendo el vigente: dos refresh concurrentes con el mismo
+     * token no pueden ganar los dos.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update RefreshTokenEntity r
+            set r.tokenHash = :newHash, r.previousHash = :oldHash, r.expiresAt = :expiresAt
+            where r.id = :id and r.tokenHash = :oldHash and r.revokedAt is null
+            """)
+    int rotate(Long id, String oldHash, String newHash, Instant expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("update RefreshTokenEntity r set r.revokedAt = :now where r.id = :id and r.revokedAt is null")
+    int revoke(Long id, Instant now);
+
+    @Query("""
+            select r.id as id, r.expiresAt as expiresAt from RefreshTokenEntity r
+            where r.userId = :userId and r.revokedAt is null and r.expiresAt > :now
+            """)
+    List<SessionState> findActive(Long userId, Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update RefreshTokenEntity r set r.revokedAt = :now where r.userId = :userId and r.revokedAt is null")
+    int revokeAllByUser(Long userId, Instant now);
+
+    @Query("""
+            select r.id as id, r.expiresAt as expiresAt from RefreshTokenEntity r
+            where r.revokedAt > :since and r.expiresAt > :now
+            """)
+    List<SessionState> findRevokedSince(Instant since, Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshTokenEntity r where r.expiresAt < :before")
+    int deleteExpiredBefore(Instant before);
+}
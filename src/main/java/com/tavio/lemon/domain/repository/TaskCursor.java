@@ -0,0 +1,42 @@
+package com.tavio.lemon.domain.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Posición dentro de un listado de tareas ordenado por (timestamp, id):
+ * (createdAt, id) en GET /tasks y (updatedAt, id) en GET /tasks/changes.
+ * Viaja al cliente como un string opaco.
+ */
+@Data
+@AllArgsConstructor
+public class TaskCursor {
+    private LocalDateTime timestamp;
+    private Long id;
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException si el cursor no tiene el formato esperado.
+     */
+    public static TaskCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new TaskCursor(
+                    LocalDateTime.parse(raw.substring(0, sep)),
+                    Long.parseLong(raw.substring(sep + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.tavio.lemon.domain.repository;
+
+import com.tavio.lemon.entity.TaskDueCountEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+// Escrituras con upsert por motor: ver TaskDueCountRepositoryImpl
+public interface TaskDueCountRepository extends JpaRepository<TaskDueCountEntity, TaskDueCountEntity.Key>,
+        TaskDueCountRepositoryCustom {
+
+    interface DueTotals {
+        long getOverdue();
+        long getDueToday();
+    }
+
+    // Recorre solo los días con tareas abiertas hasta hoy, por la PK (user_id, due_day)
+    @Query("""
+            select coalesce(sum(case when d.dueDay < :today then d.openCount else 0 end), 0) as overdue,
+                   coalesce(sum(case when d.dueDay = :today then d.openCount else 0 end), 0) as dueToday
+            from TaskDueCountEntity d
+            where d.userId = :userId and d.dueDay <= :today
+            """)
+    DueTotals sumUpTo(Long userId, LocalDate today);
+
+    // Reconciliación: días sin ninguna tarea abierta que venza en ellos (incluye los que quedaron en cero)
+    @Modifying
+    @Transactional
+    @Query("""
+            delete from TaskDueCountEntity d
+            where not exists (
+                select 1 from TaskEntity t
+                where t.user.id = d.userId and t.completed = false and cast(t.dueDate as LocalDate) = d.dueDay)
+            """)
+    int deleteEmptyDays();
+}
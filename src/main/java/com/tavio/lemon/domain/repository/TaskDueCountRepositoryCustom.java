@@ -0,0 +1,18 @@
+package com.tavio.lemon.domain.repository;
+
+import java.time.LocalDate;
+
+public interface TaskDueCountRepositoryCustom {
+
+    /**
+     * Suma {@code delta} a las tareas abiertas del usuario que vencen ese día, creando la fila si
+     * no existe, en una sola sentencia (INSERT ... ON CONFLICT en Postgres, MERGE en H2).
+     */
+    void add(Long userId, LocalDate dueDay, long delta);
+
+    /**
+     * Recalcula desde tasks los días cuyo conteo no coincide (y crea los que faltan) con el mismo
+     * upsert: solo bloquea las filas que cambian. Devuelve las filas escritas.
+     */
+    int reconcile();
+}
@@ -0,0 +1,89 @@
+package com.tavio.lemon.domain.repository;
+
+import com.tavio.lemon.entity.TaskDueCountEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+class TaskDueCountRepositoryImpl implements TaskDueCountRepositoryCustom {
+
+    private static final String ADD_SQL = """
+            INSERT INTO task_due_counts (user_id, due_day, open_count)
+            VALUES (:userId, :dueDay, :delta)
+            ON CONFLICT (user_id, due_day) DO UPDATE
+            SET open_count = task_due_counts.open_count + EXCLUDED.open_count
+            """;
+
+    private static final String ADD_MERGE_SQL = """
+            MERGE INTO task_due_counts c
+            USING (SELECT CAST(:userId AS BIGINT) AS user_id, CAST(:dueDay AS DATE) AS due_day,
+                          CAST(:delta AS BIGINT) AS open_count) d
+            ON c.user_id = d.user_id AND c.due_day = d.due_day
+            WHEN MATCHED THEN UPDATE SET open_count = c.open_count + d.open_count
+            WHEN NOT MATCHED THEN INSERT (user_id, due_day, open_count) VALUES (d.user_id, d.due_day, d.open_count)
+            """;
+
+    private static final String COUNTS_SQL = """
+            SELECT user_id, CAST(due_date AS DATE) AS due_day, COUNT(*) AS open_count
+            FROM tasks
+            WHERE completed = FALSE AND due_date IS NOT NULL
+            GROUP BY user_id, CAST(due_date AS DATE)
+            """;
+
+    private static final String RECONCILE_SQL = """
+            INSERT INTO task_due_counts (user_id, due_day, open_count)
+            """ + COUNTS_SQL + """
+            ON CONFLICT (user_id, due_day) DO UPDATE
+            SET open_count = EXCLUDED.open_count
+            WHERE task_due_counts.open_count <> EXCLUDED.open_count
+            """;
+
+    private static final String RECONCILE_MERGE_SQL = """
+            MERGE INTO task_due_counts c
+            USING (""" + COUNTS_SQL + """
+            ) d
+            ON c.user_id = d.user_id AND c.due_day = d.due_day
+            WHEN MATCHED AND c.open_count <> d.open_count THEN UPDATE SET open_count = d.open_count
+            WHEN NOT MATCHED THEN INSERT (user_id, due_day, open_count) VALUES (d.user_id, d.due_day, d.open_count)
+            """;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private volatile Boolean postgres;
+
+    @Override
+    @Transactional
+    public void add(Long userId, LocalDate dueDay, long delta) {
+        nativeUpdate(isPostgres() ? ADD_SQL : ADD_MERGE_SQL)
+                .setParameter("userId", userId)
+                .setParameter("dueDay", dueDay)
+                .setParameter("delta", delta)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int reconcile() {
+        return nativeUpdate(isPostgres() ? RECONCILE_SQL : RECONCILE_MERGE_SQL).executeUpdate();
+    }
+
+    // Sin declarar la entidad, un UPDATE nativo invalida todas las regiones de la caché L2
+    private NativeQuery<?> nativeUpdate(String sql) {
+        return em.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(TaskDueCountEntity.class);
+    }
+
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            pg = Dialects.isPostgres(em);
+            postgres = pg;
+        }
+        return pg;
+    }
+}
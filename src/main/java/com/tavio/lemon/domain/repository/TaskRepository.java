@@ -1,10 +1,120 @@
 package com.tavio.lemon.domain.repository;
 
 import com.tavio.lemon.entity.TaskEntity;
+import com.tavio.lemon.web.dto.TaskDto;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface TaskRepository extends JpaRepository<TaskEntity, Long>, TaskRepositoryCustom {
+    String EXPORT_FETCH_SIZE = "500";
 
-public interface TaskRepository extends JpaRepository<TaskEntity, Long> {
     List<TaskEntity> findByUserId(Long userId);
-}
\ No newline at end of file
+
+    @Query("""
+            select new com.tavio.lemon.web.dto.TaskDto(
+                t.id, t.title, t.description, t.completed, t.createdAt, t.updatedAt, t.dueDate, t.user.id)
+            from TaskEntity t
+            where t.id = :id
+            """)
+    Optional<TaskDto> findDtoById(Long id);
+
+    @Query("select t.user.id from TaskEntity t where t.id = :id")
+    Optional<Long> findOwnerIdById(Long id);
+
+    // Lo que cuentan los contadores de TaskStatsService
+    interface StatsState {
+        Long getUserId();
+        boolean isCompleted();
+        LocalDateTime getDueDate();
+    }
+
+    @Query("select t.user.id as userId, t.completed as completed, t.dueDate as dueDate from TaskEntity t where t.id = :id")
+    Optional<StatsState> findStatsState(Long id);
+
+    interface CompletionChange {
+        Long getUserId();
+        LocalDateTime getDueDate();
+        long getTasks();
+    }
+
+    // Tareas de ids que cambian al pasar completed a ese valor, agrupadas para los contadores
+    @Query("""
+            select t.user.id as userId, t.dueDate as dueDate, count(t) as tasks from TaskEntity t
+            where t.id in :ids and t.completed <> :completed
+            group by t.user.id, t.dueDate
+            """)
+    List<CompletionChange> findCompletionChanges(Collection<Long> ids, boolean completed);
+
+    // Bloquea hasta el commit las filas que va a escribir TaskCompletionWriteBehind; las borradas no vuelven
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t.id from TaskEntity t where t.id in :ids order by t.id")
+    List<Long> lockForCompletion(Collection<Long> ids);
+
+    // Lo que necesita TaskReminderScheduler para agendar y enviar un recordatorio
+    interface ReminderRow {
+        Long getId();
+        Long getUserId();
+        String getTitle();
+        LocalDateTime getDueDate();
+    }
+
+    // Keyset por (dueDate, id) sobre idx_tasks_open_due_date; la primera página con afterDue = from y afterId = 0
+    @Query("""
+            select t.id as id, t.user.id as userId, t.title as title, t.dueDate as dueDate from TaskEntity t
+            where t.completed = false and t.dueDate >= :from and t.dueDate < :to
+              and (t.dueDate > :afterDue or (t.dueDate = :afterDue and t.id > :afterId))
+            order by t.dueDate, t.id
+            """)
+    List<ReminderRow> findOpenDueBetween(LocalDateTime from, LocalDateTime to,
+                                         LocalDateTime afterDue, Long afterId, Limit limit);
+
+    @Query("""
+            select t.id as id, t.user.id as userId, t.title as title, t.dueDate as dueDate from TaskEntity t
+            where t.id in :ids and t.completed = false
+            """)
+    List<ReminderRow> findOpenByIds(Collection<Long> ids);
+
+
+    // Cambios desde la posición (updatedAt, id), en orden; base de GET /tasks/changes
+    @Query("""
+            select new com.tavio.lemon.web.dto.TaskDto(
+                t.id, t.title, t.description, t.completed, t.createdAt, t.updatedAt, t.dueDate, t.user.id)
+            from TaskEntity t
+            where t.user.id = :userId
+              and (t.updatedAt > :since or (t.updatedAt = :since and t.id > :afterId))
+            order by t.updatedAt, t.id
+            """)
+    List<TaskDto> findChangedDtos(Long userId, LocalDateTime since, Long afterId, Limit limit);
+
+    // Para exportaciones: cursor JDBC con fetch size fijo. Debe consumirse dentro de una transacción.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query("""
+            select new com.tavio.lemon.web.dto.TaskDto(
+                t.id, t.title, t.description, t.completed, t.createdAt, t.updatedAt, t.dueDate, t.user.id)
+            from TaskEntity t
+            where t.user.id = :userId
+            order by t.id
+            """)
+    Stream<TaskDto> streamDtosByUserId(Long userId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query("""
+            select new com.tavio.lemon.web.dto.TaskDto(
+                t.id, t.title, t.description, t.completed, t.createdAt, t.updatedAt, t.dueDate, t.user.id)
+            from TaskEntity t
+            order by t.id
+            """)
+    Stream<TaskDto> streamAllDtos();
+}
@@ -0,0 +1,64 @@
+package com.tavio.lemon.domain.repository;
+
+import com.tavio.lemon.web.dto.TaskDto;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TaskRepositoryCustom {
+
+    /** Lo que una tarea contaba para TaskStatsService antes de una escritura. */
+    record PreviousState(boolean completed, LocalDateTime dueDate) {
+    }
+
+    /** Resultado de {@link #updateOwned}: la tarea ya escrita y su estado anterior. */
+    record OwnedUpdate(TaskDto task, PreviousState previous) {
+    }
+
+    /**
+     * Página de tareas de un usuario ordenada por (createdAt, id), empezando
+     * después de {@code after} (o desde el principio si es null).
+     * Proyecta directo a TaskDto: no hidrata entidades ni toca la tabla users.
+     */
+    List<TaskDto> findDtoPageByUserId(Long userId, TaskFilter filter, TaskCursor after, int limit);
+
+    /**
+     * Búsqueda por palabras en título y descripción dentro de las tareas de un usuario.
+     * En Postgres usa la columna search_vector (GIN) y ordena por ts_rank; en otros motores
+     * (H2 en tests) cae a un LIKE sin ranking, ordenado de la más nueva a la más vieja.
+     */
+    List<TaskDto> searchDtosByUserId(Long userId, String query, int offset, int limit);
+
+    /**
+     * Reescribe una tarea solo si pertenece a {@code userId}; vacío si no existe o es ajena.
+     * En Postgres es una única sentencia (WITH old AS (SELECT ... FOR UPDATE) UPDATE ... RETURNING)
+     * que devuelve la fila nueva y el estado previo, sin SELECT antes ni después. En otros motores
+     * (H2 en tests) cae a SELECT ... FOR UPDATE, UPDATE y la lectura de la proyección.
+     */
+    Optional<OwnedUpdate> updateOwned(Long id, Long userId, String title, String description,
+                                      boolean completed, LocalDateTime dueDate, LocalDateTime now);
+
+    /**
+     * Borra una tarea solo si pertenece a {@code userId} y devuelve su estado previo; vacío si no
+     * existe o es ajena. En Postgres es un DELETE ... RETURNING; en otros motores, SELECT ... FOR
+     * UPDATE y DELETE.
+     */
+    Optional<PreviousState> deleteOwned(Long id, Long userId);
+
+    /**
+     * Marca {@code completed} en un lote de tareas (el volcado de TaskCompletionWriteBehind).
+     * Es un UPDATE nativo que solo saca de la caché L2 las tareas del lote, no toda la región
+     * de TaskEntity como un UPDATE masivo JPQL.
+     * <p>
+     * Como updateOwned, no pasa por la auditoría: updatedAt llega como parámetro, tomado del
+     * reloj de la aplicación igual que el de la auditoría y el cursor de GET /tasks/changes.
+     */
+    int updateCompleted(Collection<Long> ids, boolean completed, LocalDateTime now);
+
+    /**
+     * Quita una tarea de la caché de segundo nivel.
+     */
+    void evictFromCache(Long id);
+}
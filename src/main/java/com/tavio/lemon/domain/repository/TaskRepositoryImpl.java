@@ -0,0 +1,348 @@
+package com.tavio.lemon.domain.repository;
+
+import com.tavio.lemon.entity.TaskEntity;
+import com.tavio.lemon.web.dto.TaskDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+class TaskRepositoryImpl implements TaskRepositoryCustom {
+
+    private static final String SEARCH_SQL = """
+            SELECT t.id, t.title, t.description, t.completed, t.created_at, t.updated_at, t.due_date, t.user_id
+            FROM tasks t, websearch_to_tsquery('spanish', :query) q
+            WHERE t.user_id = :userId AND t.search_vector @@ q
+            ORDER BY ts_rank(t.search_vector, q) DESC, t.id DESC
+            """;
+
+    private static final String SEARCH_FALLBACK_JPQL = """
+            select new com.tavio.lemon.web.dto.TaskDto(
+                t.id, t.title, t.description, t.completed, t.createdAt, t.updatedAt, t.dueDate, t.user.id)
+            from TaskEntity t
+            where t.user.id = :userId
+              and (lower(t.title) like :pattern escape '\\' or lower(t.description) like :pattern escape '\\')
+            order by t.createdAt desc, t.id desc
+            """;
+
+    // old bloquea la fila y conserva los valores previos; RETURNING trae la fila nueva y los previos
+    private static final String UPDATE_OWNED_SQL = """
+            WITH old AS (
+                SELECT id, completed, due_date FROM tasks
+                WHERE id = :id AND user_id = :userId
+                FOR UPDATE
+            )
+            UPDATE tasks t
+            SET title = :title, description = :description, completed = :completed,
+                due_date = :dueDate, updated_at = :now
+            FROM old
+            WHERE t.id = old.id
+            RETURNING t.id, t.title, t.description, t.completed, t.created_at, t.updated_at, t.due_date,
+                      t.user_id, old.completed AS old_completed, old.due_date AS old_due_date
+            """;
+
+    private static final String DELETE_OWNED_SQL = """
+            DELETE FROM tasks
+            WHERE id = :id AND user_id = :userId
+            RETURNING completed, due_date
+            """;
+
+    private static final String LOCK_OWNED_SQL = """
+            SELECT completed, due_date FROM tasks
+            WHERE id = :id AND user_id = :userId
+            FOR UPDATE
+            """;
+
+    private static final String UPDATE_OWNED_JPQL = """
+            update TaskEntity t
+            set t.title = :title, t.description = :description,
+                t.completed = :completed, t.dueDate = :dueDate,
+                t.updatedAt = :now
+            where t.id = :id and t.user.id = :userId
+            """;
+
+    private static final String UPDATE_COMPLETED_SQL = """
+            UPDATE tasks SET completed = :completed, updated_at = :now
+            WHERE id IN (:ids)
+            """;
+
+    // Espacio de consulta que no es tabla de ninguna entidad: Hibernate no limpia ninguna región L2
+    // tras updateCompleted (sin espacios, o con el de tasks, vaciaría la de TaskEntity entera)
+    private static final String COMPLETION_QUERY_SPACE = "task_completion_flush";
+
+    private static final String FIND_DTO_JPQL = """
+            select new com.tavio.lemon.web.dto.TaskDto(
+                t.id, t.title, t.description, t.completed, t.createdAt, t.updatedAt, t.dueDate, t.user.id)
+            from TaskEntity t
+            where t.id = :id
+            """;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private volatile Boolean postgres;
+
+    @Override
+    public List<TaskDto> findDtoPageByUserId(Long userId, TaskFilter filter, TaskCursor after, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<TaskDto> q = cb.createQuery(TaskDto.class);
+        Root<TaskEntity> t = q.from(TaskEntity.class);
+
+        q.select(cb.construct(TaskDto.class,
+                        t.get("id"),
+                        t.get("title"),
+                        t.get("description"),
+                        t.get("completed"),
+                        t.get("createdAt"),
+                        t.get("updatedAt"),
+                        t.get("dueDate"),
+                        t.get("user").get("id")))
+                .where(predicates(cb, t, userId, filter, after))
+                .orderBy(cb.asc(t.get("createdAt")), cb.asc(t.get("id")));
+
+        return em.createQuery(q)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<TaskDto> searchDtosByUserId(Long userId, String query, int offset, int limit) {
+        if (!isPostgres()) {
+            return em.createQuery(SEARCH_FALLBACK_JPQL, TaskDto.class)
+                    .setParameter("userId", userId)
+                    .setParameter("pattern", "%" + escapeLike(query.toLowerCase()) + "%")
+                    .setFirstResult(offset)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(SEARCH_SQL)
+                .unwrap(NativeQuery.class)
+                .addScalar("id", Long.class)
+                .addScalar("title", String.class)
+                .addScalar("description", String.class)
+                .addScalar("completed", Boolean.class)
+                .addScalar("created_at", LocalDateTime.class)
+                .addScalar("updated_at", LocalDateTime.class)
+                .addScalar("due_date", LocalDateTime.class)
+                .addScalar("user_id", Long.class)
+                .setParameter("userId", userId)
+                .setParameter("query", query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+
+        List<TaskDto> dtos = new ArrayList<>(rows.size());
+        for (Object[] r : rows) {
+            dtos.add(new TaskDto((Long) r[0], (String) r[1], (String) r[2], (Boolean) r[3],
+                    (LocalDateTime) r[4], (LocalDateTime) r[5], (LocalDateTime) r[6], (Long) r[7]));
+        }
+        return dtos;
+    }
+
+    @Override
+    @Transactional
+    public Optional<OwnedUpdate> updateOwned(Long id, Long userId, String title, String description,
+                                             boolean completed, LocalDateTime dueDate, LocalDateTime now) {
+        if (!isPostgres()) {
+            Optional<PreviousState> previous = lockOwned(id, userId);
+            if (previous.isEmpty()) {
+                return Optional.empty();
+            }
+            em.createQuery(UPDATE_OWNED_JPQL)
+                    .setParameter("id", id)
+                    .setParameter("userId", userId)
+                    .setParameter("title", title)
+                    .setParameter("description", description)
+                    .setParameter("completed", completed)
+                    .setParameter("dueDate", dueDate)
+                    .setParameter("now", now)
+                    .executeUpdate();
+            TaskDto task = em.createQuery(FIND_DTO_JPQL, TaskDto.class)
+                    .setParameter("id", id)
+                    .getSingleResult();
+            return Optional.of(new OwnedUpdate(task, previous.get()));
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(UPDATE_OWNED_SQL)
+                .unwrap(NativeQuery.class)
+                .addScalar("id", Long.class)
+                .addScalar("title", String.class)
+                .addScalar("description", String.class)
+                .addScalar("completed", Boolean.class)
+                .addScalar("created_at", LocalDateTime.class)
+                .addScalar("updated_at", LocalDateTime.class)
+                .addScalar("due_date", LocalDateTime.class)
+                .addScalar("user_id", Long.class)
+                .addScalar("old_completed", Boolean.class)
+                .addScalar("old_due_date", LocalDateTime.class)
+                .setParameter("id", id)
+                .setParameter("userId", userId)
+                .setParameter("title", title)
+                .setParameter("description", description, String.class)
+                .setParameter("completed", completed)
+                .setParameter("dueDate", dueDate, LocalDateTime.class)
+                .setParameter("now", now)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        evictAfterWrite(id);
+        Object[] r = rows.get(0);
+        TaskDto task = new TaskDto((Long) r[0], (String) r[1], (String) r[2], (Boolean) r[3],
+                (LocalDateTime) r[4], (LocalDateTime) r[5], (LocalDateTime) r[6], (Long) r[7]);
+        return Optional.of(new OwnedUpdate(task, new PreviousState((Boolean) r[8], (LocalDateTime) r[9])));
+    }
+
+    @Override
+    @Transactional
+    public Optional<PreviousState> deleteOwned(Long id, Long userId) {
+        if (!isPostgres()) {
+            Optional<PreviousState> previous = lockOwned(id, userId);
+            if (previous.isPresent()) {
+                em.createQuery("delete from TaskEntity t where t.id = :id and t.user.id = :userId")
+                        .setParameter("id", id)
+                        .setParameter("userId", userId)
+                        .executeUpdate();
+            }
+            return previous;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(DELETE_OWNED_SQL)
+                .unwrap(NativeQuery.class)
+                .addScalar("completed", Boolean.class)
+                .addScalar("due_date", LocalDateTime.class)
+                .setParameter("id", id)
+                .setParameter("userId", userId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        evictAfterWrite(id);
+        return Optional.of(new PreviousState((Boolean) rows.get(0)[0], (LocalDateTime) rows.get(0)[1]));
+    }
+
+    @Override
+    @Transactional
+    public int updateCompleted(Collection<Long> ids, boolean completed, LocalDateTime now) {
+        int updated = em.createNativeQuery(UPDATE_COMPLETED_SQL)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(COMPLETION_QUERY_SPACE)
+                .setParameter("completed", completed)
+                .setParameter("now", now)
+                .setParameterList("ids", ids)
+                .executeUpdate();
+        evictAfterWrite(ids);
+        return updated;
+    }
+
+    @Override
+    public void evictFromCache(Long id) {
+        em.getEntityManagerFactory().getCache().evict(TaskEntity.class, id);
+    }
+
+    // Camino sin RETURNING: una lectura más, que bloquea la fila hasta el commit
+    private Optional<PreviousState> lockOwned(Long id, Long userId) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em.createNativeQuery(LOCK_OWNED_SQL)
+                .unwrap(NativeQuery.class)
+                .addScalar("completed", Boolean.class)
+                .addScalar("due_date", LocalDateTime.class)
+                .setParameter("id", id)
+                .setParameter("userId", userId)
+                .getResultList();
+        return rows.isEmpty()
+                ? Optional.empty()
+                : Optional.of(new PreviousState((Boolean) rows.get(0)[0], (LocalDateTime) rows.get(0)[1]));
+    }
+
+    // Un UPDATE ... RETURNING corre como consulta (y updateCompleted no declara la tabla): Hibernate
+    // no invalida la caché L2 como en un UPDATE masivo. Se quitan las tareas ahora y de nuevo al
+    // terminar la transacción, por si alguien las volvió a cargar con los datos previos al commit.
+    private void evictAfterWrite(Long id) {
+        evictAfterWrite(List.of(id));
+    }
+
+    private void evictAfterWrite(Collection<Long> ids) {
+        ids.forEach(this::evictFromCache);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> written = List.copyOf(ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    written.forEach(TaskRepositoryImpl.this::evictFromCache);
+                }
+            });
+        }
+    }
+
+    static Predicate[] predicates(CriteriaBuilder cb, Root<TaskEntity> t,
+                                  Long userId, TaskFilter filter, TaskCursor after) {
+        List<Predicate> where = new ArrayList<>();
+        // user_id es columna de tasks: no hace falta join con users
+        where.add(cb.equal(t.get("user").get("id"), userId));
+
+        if (after != null) {
+            Path<LocalDateTime> createdAt = t.get("createdAt");
+            where.add(cb.or(
+                    cb.greaterThan(createdAt, after.getTimestamp()),
+                    cb.and(
+                            cb.equal(createdAt, after.getTimestamp()),
+                            cb.greaterThan(t.get("id"), after.getId())
+                    )
+            ));
+        }
+
+        if (filter != null) {
+            if (filter.getCompleted() != null) {
+                where.add(cb.equal(t.get("completed"), filter.getCompleted()));
+            }
+            if (filter.getDueFrom() != null) {
+                where.add(cb.greaterThanOrEqualTo(t.get("dueDate"), filter.getDueFrom()));
+            }
+            if (filter.getDueTo() != null) {
+                where.add(cb.lessThan(t.get("dueDate"), filter.getDueTo()));
+            }
+            if (filter.getTitlePrefix() != null && !filter.getTitlePrefix().isBlank()) {
+                where.add(cb.like(
+                        cb.lower(t.get("title")),
+                        escapeLike(filter.getTitlePrefix().toLowerCase()) + "%",
+                        '\\'
+                ));
+            }
+        }
+        return where.toArray(new Predicate[0]);
+    }
+
+    // Postgres: search_vector (ver db/migration/postgresql/V3) y UPDATE/DELETE ... RETURNING
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            pg = Dialects.isPostgres(em);
+            postgres = pg;
+        }
+        return pg;
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -0,0 +1,47 @@
+package com.tavio.lemon.domain.repository;
+
+import com.tavio.lemon.entity.TaskTombstoneEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstoneEntity, Long> {
+
+    // Los INSERT ... SELECT se ejecutan antes del DELETE de la tarea, en la misma transacción:
+    // solo dejan lápida si la tarea existe (y, en el primero, si es de userId). deletedAt llega
+    // del reloj de la aplicación, el mismo del cursor de GET /tasks/changes.
+
+    @Modifying
+    @Transactional
+    @Query("""
+            insert into TaskTombstoneEntity (taskId, userId, deletedAt)
+            select t.id, t.user.id, cast(:now as LocalDateTime) from TaskEntity t
+            where t.id = :id and t.user.id = :userId
+            """)
+    int insertOwned(Long id, Long userId, LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            insert into TaskTombstoneEntity (taskId, userId, deletedAt)
+            select t.id, t.user.id, cast(:now as LocalDateTime) from TaskEntity t
+            where t.id in :ids
+            """)
+    int insertForTasks(Collection<Long> ids, LocalDateTime now);
+
+    @Query("""
+            select t.taskId from TaskTombstoneEntity t
+            where t.userId = :userId and t.deletedAt > :from and t.deletedAt <= :to
+            """)
+    List<Long> findDeletedIds(Long userId, LocalDateTime from, LocalDateTime to);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TaskTombstoneEntity t where t.deletedAt < :before")
+    int deleteOlderThan(LocalDateTime before);
+}
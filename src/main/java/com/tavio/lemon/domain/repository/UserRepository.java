@@ -2,11 +2,25 @@ package com.tavio.lemon.domain.repository;
 
 import com.tavio.lemon.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     Optional<UserEntity> findByUsername(String username);
     boolean existsByUsername(String username);
 
-}
\ No newline at end of file
+    // Lo mínimo para validar tokens sin cargar entidades (ver TokenVersionRegistry)
+    interface TokenState {
+        Long getId();
+        int getTokenVersion();
+        boolean isEnabled();
+    }
+
+    @Query("select u.id as id, u.tokenVersion as tokenVersion, u.enabled as enabled from UserEntity u")
+    List<TokenState> findTokenStates();
+
+    @Query("select u.id as id, u.tokenVersion as tokenVersion, u.enabled as enabled from UserEntity u where u.id = :id")
+    Optional<TokenState> findTokenState(Long id);
+}
@@ -0,0 +1,8 @@
+package com.tavio.lemon.domain.repository;
+
+import com.tavio.lemon.entity.UserTaskStatsEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+// Escrituras con upsert por motor: ver UserTaskStatsRepositoryImpl
+public interface UserTaskStatsRepository extends JpaRepository<UserTaskStatsEntity, Long>, UserTaskStatsRepositoryCustom {
+}
@@ -0,0 +1,17 @@
+package com.tavio.lemon.domain.repository;
+
+public interface UserTaskStatsRepositoryCustom {
+
+    /**
+     * Suma la diferencia a la fila del usuario, creándola si no existe, en una sola sentencia:
+     * INSERT ... ON CONFLICT en Postgres y MERGE en H2. Dos escrituras concurrentes sobre un
+     * usuario sin fila no pueden chocar por la PK.
+     */
+    void add(Long userId, long total, long completed);
+
+    /**
+     * Recalcula desde tasks los usuarios cuyos contadores no coinciden (y crea los que faltan),
+     * con el mismo upsert: solo bloquea las filas que cambian. Devuelve las filas escritas.
+     */
+    int reconcile();
+}
@@ -0,0 +1,88 @@
+package com.tavio.lemon.domain.repository;
+
+import com.tavio.lemon.entity.UserTaskStatsEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+class UserTaskStatsRepositoryImpl implements UserTaskStatsRepositoryCustom {
+
+    private static final String ADD_SQL = """
+            INSERT INTO user_task_stats (user_id, total, completed)
+            VALUES (:userId, :total, :completed)
+            ON CONFLICT (user_id) DO UPDATE
+            SET total = user_task_stats.total + EXCLUDED.total,
+                completed = user_task_stats.completed + EXCLUDED.completed
+            """;
+
+    private static final String ADD_MERGE_SQL = """
+            MERGE INTO user_task_stats s
+            USING (SELECT CAST(:userId AS BIGINT) AS user_id, CAST(:total AS BIGINT) AS total,
+                          CAST(:completed AS BIGINT) AS completed) d
+            ON s.user_id = d.user_id
+            WHEN MATCHED THEN UPDATE SET total = s.total + d.total, completed = s.completed + d.completed
+            WHEN NOT MATCHED THEN INSERT (user_id, total, completed) VALUES (d.user_id, d.total, d.completed)
+            """;
+
+    private static final String COUNTS_SQL = """
+            SELECT u.id AS user_id, COUNT(t.id) AS total, COUNT(CASE WHEN t.completed THEN 1 END) AS completed
+            FROM users u LEFT JOIN tasks t ON t.user_id = u.id
+            GROUP BY u.id
+            """;
+
+    private static final String RECONCILE_SQL = """
+            INSERT INTO user_task_stats (user_id, total, completed)
+            """ + COUNTS_SQL + """
+            ON CONFLICT (user_id) DO UPDATE
+            SET total = EXCLUDED.total, completed = EXCLUDED.completed
+            WHERE user_task_stats.total <> EXCLUDED.total OR user_task_stats.completed <> EXCLUDED.completed
+            """;
+
+    private static final String RECONCILE_MERGE_SQL = """
+            MERGE INTO user_task_stats s
+            USING (""" + COUNTS_SQL + """
+            ) d
+            ON s.user_id = d.user_id
+            WHEN MATCHED AND (s.total <> d.total OR s.completed <> d.completed)
+                THEN UPDATE SET total = d.total, completed = d.completed
+            WHEN NOT MATCHED THEN INSERT (user_id, total, completed) VALUES (d.user_id, d.total, d.completed)
+            """;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private volatile Boolean postgres;
+
+    @Override
+    @Transactional
+    public void add(Long userId, long total, long completed) {
+        nativeUpdate(isPostgres() ? ADD_SQL : ADD_MERGE_SQL)
+                .setParameter("userId", userId)
+                .setParameter("total", total)
+                .setParameter("completed", completed)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int reconcile() {
+        return nativeUpdate(isPostgres() ? RECONCILE_SQL : RECONCILE_MERGE_SQL).executeUpdate();
+    }
+
+    // Sin declarar la entidad, un UPDATE nativo invalida todas las regiones de la caché L2
+    private NativeQuery<?> nativeUpdate(String sql) {
+        return em.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(UserTaskStatsEntity.class);
+    }
+
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            pg = Dialects.isPostgres(em);
+            postgres = pg;
+        }
+        return pg;
+    }
+}
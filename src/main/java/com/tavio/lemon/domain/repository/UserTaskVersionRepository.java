@@ -0,0 +1,26 @@
+package com.tavio.lemon.domain.repository;
+
+import com.tavio.lemon.entity.UserTaskVersionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Optional;
+
+// La versión de un usuario se incrementa con upsert por motor: ver UserTaskVersionRepositoryImpl
+public interface UserTaskVersionRepository extends JpaRepository<UserTaskVersionEntity, Long>,
+        UserTaskVersionRepositoryCustom {
+
+    @Query("select v.version from UserTaskVersionEntity v where v.userId = :userId")
+    Optional<Long> findVersion(Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            update UserTaskVersionEntity v set v.version = v.version + 1
+            where v.userId in (select t.user.id from TaskEntity t where t.id in :ids)
+            """)
+    int incrementForTasks(Collection<Long> ids);
+}
@@ -0,0 +1,11 @@
+package com.tavio.lemon.domain.repository;
+
+public interface UserTaskVersionRepositoryCustom {
+
+    /**
+     * Incrementa la versión del usuario, creando la fila con versión 1 si no existe, en una sola
+     * sentencia: INSERT ... ON CONFLICT en Postgres y MERGE en H2. Dos primeras escrituras
+     * concurrentes de un usuario no pueden chocar por la PK.
+     */
+    void bump(Long userId);
+}
@@ -0,0 +1,49 @@
+package com.tavio.lemon.domain.repository;
+
+import com.tavio.lemon.entity.UserTaskVersionEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+class UserTaskVersionRepositoryImpl implements UserTaskVersionRepositoryCustom {
+
+    private static final String BUMP_SQL = """
+            INSERT INTO user_task_versions (user_id, version)
+            VALUES (:userId, 1)
+            ON CONFLICT (user_id) DO UPDATE SET version = user_task_versions.version + 1
+            """;
+
+    private static final String BUMP_MERGE_SQL = """
+            MERGE INTO user_task_versions v
+            USING (SELECT CAST(:userId AS BIGINT) AS user_id) d
+            ON v.user_id = d.user_id
+            WHEN MATCHED THEN UPDATE SET version = v.version + 1
+            WHEN NOT MATCHED THEN INSERT (user_id, version) VALUES (d.user_id, 1)
+            """;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private volatile Boolean postgres;
+
+    @Override
+    @Transactional
+    public void bump(Long userId) {
+        em.createNativeQuery(isPostgres() ? BUMP_SQL : BUMP_MERGE_SQL)
+                .unwrap(NativeQuery.class)
+                // Sin declarar la entidad, un UPDATE nativo invalida todas las regiones de la caché L2
+                .addSynchronizedEntityClass(UserTaskVersionEntity.class)
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            pg = Dialects.isPostgres(em);
+            postgres = pg;
+        }
+        return pg;
+    }
+}
@@ -8,10 +8,13 @@ import com.tavio.lemon.security.UserDetailsImpl;
 import com.tavio.lemon.web.config.JwtUtil;
 import com.tavio.lemon.web.dto.AuthResponse;
 import com.tavio.lemon.web.dto.LoginRequest;
+import com.tavio.lemon.web.dto.RefreshRequest;
 import com.tavio.lemon.web.dto.RegisterRequest;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -20,22 +23,26 @@ import org.springframework.stereotype.Service;
 import java.time.Instant;
 
 @Service
+@Timed(value = "service.calls", histogram = true)
 public class AuthService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authManager;
     private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokens;
 
     @Autowired
     public AuthService(UserRepository userRepository,
                        PasswordEncoder passwordEncoder,
                        AuthenticationManager authManager,
-                       JwtUtil jwtUtil) {
+                       JwtUtil jwtUtil,
+                       RefreshTokenService refreshTokens) {
         this.userRepository  = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authManager     = authManager;
         this.jwtUtil         = jwtUtil;
+        this.refreshTokens   = refreshTokens;
     }
 
     /**
@@ -55,20 +62,13 @@ public class AuthService {
                 .build();
         UserEntity saved = userRepository.save(user);
 
-        UserDetailsImpl principal = UserDetailsImpl.build(saved);
-        String token = jwtUtil.generateToken(principal);
-
-        return AuthResponse.builder()
-                .token(token)
-                .userId(saved.getId())
-                .username(saved.getUsername())
-                .role(saved.getRole().name())
-                .build();
+        return respond(UserDetailsImpl.build(saved), refreshTokens.create(saved.getId()));
     }
 
     /**
-     * Autentica credenciales y devuelve un JWT.
+     * Autentica credenciales y devuelve un JWT y un refresh token.
      * @throws BadCredentialsException si usuario/clave no coinciden.
+     * @throws DisabledException si el usuario está deshabilitado.
      */
     public AuthResponse login(LoginRequest req) {
         Authentication auth = authManager.authenticate(
@@ -78,10 +78,33 @@ public class AuthService {
                 )
         );
         UserDetailsImpl principal = (UserDetailsImpl) auth.getPrincipal();
-        String token = jwtUtil.generateToken(principal);
+        return respond(principal, refreshTokens.create(principal.getId()));
+    }
+
+    /**
+     * Cambia un refresh token por un access token nuevo y el refresh token siguiente.
+     * Sin BCrypt: el refresh token se valida por su hash.
+     * @throws BadCredentialsException si el refresh token no es válido o el usuario está deshabilitado.
+     */
+    public AuthResponse refresh(RefreshRequest req) {
+        RefreshTokenService.Issued issued = refreshTokens.rotate(req.getRefreshToken());
+        // Usuario de la caché de segundo nivel: rol y versión de token actuales
+        UserEntity user = userRepository.findById(issued.userId())
+                .filter(UserEntity::isEnabled)
+                .orElseThrow(() -> new BadCredentialsException("Usuario deshabilitado"));
+        return respond(UserDetailsImpl.build(user), issued);
+    }
+
+    /** Cierra la sesión del refresh token; sus access tokens dejan de valer. */
+    public void logout(RefreshRequest req) {
+        refreshTokens.revoke(req.getRefreshToken());
+    }
 
+    private AuthResponse respond(UserDetailsImpl principal, RefreshTokenService.Issued session) {
         return AuthResponse.builder()
-                .token(token)
+                .token(jwtUtil.generateToken(principal, session.sessionId()))
+                .expiresIn(jwtUtil.getExpiresInSeconds())
+                .refreshToken(session.token())
                 .userId(principal.getId())
                 .username(principal.getUsername())
                 .role(principal.getAuthorities().iterator().next().getAuthority().replace("ROLE_",""))
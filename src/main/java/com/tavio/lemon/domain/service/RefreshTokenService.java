@@ -0,0 +1,180 @@
+package com.tavio.lemon.domain.service;
+
+import com.tavio.lemon.domain.repository.RefreshTokenRepository;
+import com.tavio.lemon.entity.RefreshTokenEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Refresh tokens con rotación. El token es {@code <id de sesión>.<secreto aleatorio>}:
+ * el id permite buscar la sesión por clave primaria y el secreto, de 256 bits, se compara
+ * por su SHA-256, sin BCrypt. Cada uso entrega un token nuevo y el anterior deja de valer;
+ * si el anterior vuelve a presentarse (lo usó otro), se revoca la sesión entera.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final int SECRET_BYTES = 32;
+
+    /** Refresh token recién emitido y la sesión a la que pertenece. */
+    public record Issued(Long sessionId, Long userId, String token) {
+    }
+
+    private final RefreshTokenRepository repository;
+    private final SessionRevocationRegistry revocations;
+    private final Duration ttl;
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    public RefreshTokenService(RefreshTokenRepository repository,
+                               SessionRevocationRegistry revocations,
+                               @Value("${security.jwt.refresh-ttl:30d}") Duration ttl) {
+        this.repository = repository;
+        this.revocations = revocations;
+        this.ttl = ttl;
+    }
+
+    /** Abre una sesión nueva para el usuario. */
+    public Issued create(Long userId) {
+        String secret = newSecret();
+        Instant now = Instant.now();
+        RefreshTokenEntity session = repository.save(RefreshTokenEntity.builder()
+                .userId(userId)
+                .tokenHash(hash(secret))
+                .createdAt(now)
+                .expiresAt(now.plus(ttl))
+                .build());
+        return new Issued(session.getId(), userId, session.getId() + "." + secret);
+    }
+
+    /**
+     * Cambia un refresh token vigente por uno nuevo de la misma sesión, que además extiende
+     * su vencimiento.
+     * @throws BadCredentialsException si el token no existe, venció, fue revocado o ya se usó.
+     */
+    // Sin rollback al rechazar: la revocación por reúso tiene que quedar guardada
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public Issued rotate(String token) {
+        RefreshTokenEntity session = findSession(token);
+        String presented = hash(secretOf(token));
+        Instant now = Instant.now();
+        if (session.getRevokedAt() != null || !session.getExpiresAt().isAfter(now)) {
+            throw new BadCredentialsException("Refresh token vencido o revocado");
+        }
+        if (matches(presented, session.getPreviousHash())) {
+            log.warn("Reúso de refresh token en la sesión {} del usuario {}: se revoca", session.getId(), session.getUserId());
+            revoke(session, now);
+            throw new BadCredentialsException("Refresh token ya utilizado");
+        }
+        if (!matches(presented, session.getTokenHash())) {
+            throw new BadCredentialsException("Refresh token inválido");
+        }
+        String secret = newSecret();
+        if (repository.rotate(session.getId(), session.getTokenHash(), hash(secret), now.plus(ttl)) == 0) {
+            // Otro refresh concurrente con el mismo token ganó la rotación
+            throw new BadCredentialsException("Refresh token ya utilizado");
+        }
+        return new Issued(session.getId(), session.getUserId(), session.getId() + "." + secret);
+    }
+
+    /** Cierra la sesión del token (logout). Un token desconocido o ya revocado no hace nada. */
+    public void revoke(String token) {
+        RefreshTokenEntity session;
+        try {
+            session = findSession(token);
+        } catch (BadCredentialsException e) {
+            return;
+        }
+        String presented = hash(secretOf(token));
+        if (matches(presented, session.getTokenHash()) || matches(presented, session.getPreviousHash())) {
+            revoke(session, Instant.now());
+        }
+    }
+
+    /** Cierra todas las sesiones del usuario (deshabilitado o cambio de contraseña). */
+    @Transactional
+    public void revokeAll(Long userId) {
+        Instant now = Instant.now();
+        List<RefreshTokenRepository.SessionState> active = repository.findActive(userId, now);
+        repository.revokeAllByUser(userId, now);
+        for (RefreshTokenRepository.SessionState session : active) {
+            revocations.revoke(session.getId(), session.getExpiresAt());
+        }
+    }
+
+    @Scheduled(cron = "${security.sessions.purge-cron:0 45 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = repository.deleteExpiredBefore(Instant.now());
+        log.info("Sesiones de refresh vencidas purgadas: {}", purged);
+    }
+
+    private void revoke(RefreshTokenEntity session, Instant now) {
+        repository.revoke(session.getId(), now);
+        revocations.revoke(session.getId(), session.getExpiresAt());
+    }
+
+    private RefreshTokenEntity findSession(String token) {
+        long sessionId = sessionIdOf(token);
+        // Sesión revocada: se rechaza sin ir a la base
+        if (revocations.isRevoked(sessionId)) {
+            throw new BadCredentialsException("Refresh token revocado");
+        }
+        return repository.findById(sessionId)
+                .orElseThrow(() -> new BadCredentialsException("Refresh token inválido"));
+    }
+
+    private static long sessionIdOf(String token) {
+        int dot = token == null ? -1 : token.indexOf('.');
+        if (dot <= 0) {
+            throw new BadCredentialsException("Refresh token mal formado");
+        }
+        try {
+            return Long.parseLong(token, 0, dot, 10);
+        } catch (NumberFormatException e) {
+            throw new BadCredentialsException("Refresh token mal formado");
+        }
+    }
+
+    private static String secretOf(String token) {
+        return token.substring(token.indexOf('.') + 1);
+    }
+
+    private String newSecret() {
+        byte[] bytes = new byte[SECRET_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // Comparación en tiempo constante
+    private static boolean matches(String presented, String stored) {
+        return stored != null && MessageDigest.isEqual(
+                presented.getBytes(StandardCharsets.US_ASCII), stored.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String hash(String secret) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(secret.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
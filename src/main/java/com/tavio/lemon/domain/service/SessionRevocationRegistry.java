@@ -0,0 +1,188 @@
+package com.tavio.lemon.domain.service;
+
+import com.tavio.lemon.domain.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sesiones de refresh revocadas (logout, reúso, usuario deshabilitado), en memoria, para
+ * rechazar sus tokens sin ir a la base: JwtFilter lo consulta en cada request con el claim
+ * {@code sid} y el refresh antes de buscar la sesión.
+ * <p>
+ * Un filtro de Bloom descarta en unos pocos accesos a memoria las sesiones no revocadas
+ * (casi todas); solo sus positivos se confirman en el set exacto. Se carga entero al
+ * arrancar y cada {@code security.sessions.rebuild} (lo vencido se descarta: un Bloom no
+ * permite borrar); entre medio, las revocaciones de este nodo se aplican enseguida y las
+ * de otros nodos se leen cada {@code security.sessions.refresh}.
+ */
+@Service
+public class SessionRevocationRegistry implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionRevocationRegistry.class);
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // revoked_at lo pone el reloj del nodo antes del commit: se relee un margen hacia atrás
+    private static final Duration OVERLAP = Duration.ofMinutes(1);
+
+    // Filtro y set se publican juntos; el set se modifica en el lugar con cada revocación
+    private record State(BloomFilter filter, Map<Long, Instant> revoked) {
+    }
+
+    private final RefreshTokenRepository repository;
+    private final long expectedRevocations;
+    private volatile State state;
+    private volatile Instant watermark = Instant.EPOCH;
+    private final LongAdder falsePositives = new LongAdder();
+
+    @Autowired
+    public SessionRevocationRegistry(RefreshTokenRepository repository,
+                                     @Value("${security.sessions.expected-revocations:100000}") long expectedRevocations) {
+        this.repository = repository;
+        this.expectedRevocations = expectedRevocations;
+        this.state = new State(new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE), new ConcurrentHashMap<>());
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${security.sessions.rebuild:1h}",
+            initialDelayString = "${security.sessions.rebuild:1h}")
+    public void rebuild() {
+        Instant now = Instant.now();
+        List<RefreshTokenRepository.SessionState> sessions = repository.findRevokedSince(Instant.EPOCH, now);
+        // Con más revocaciones de las previstas, el filtro crece para mantener la tasa de falsos positivos
+        long capacity = Math.max(expectedRevocations, sessions.size() * 2L);
+        State fresh = new State(new BloomFilter(capacity, FALSE_POSITIVE_RATE), new ConcurrentHashMap<>());
+        for (RefreshTokenRepository.SessionState session : sessions) {
+            add(fresh, session.getId(), session.getExpiresAt());
+        }
+        // Lo revocado en este nodo mientras se consultaba y todavía no figura en la consulta
+        state.revoked().forEach((id, expiresAt) -> {
+            if (expiresAt.isAfter(now)) {
+                add(fresh, id, expiresAt);
+            }
+        });
+        state = fresh;
+        watermark = now;
+        log.debug("Sesiones revocadas recargadas: {}", fresh.revoked().size());
+    }
+
+    @Scheduled(fixedDelayString = "${security.sessions.refresh:10s}",
+            initialDelayString = "${security.sessions.refresh:10s}")
+    public void refresh() {
+        Instant now = Instant.now();
+        for (RefreshTokenRepository.SessionState session : repository.findRevokedSince(watermark.minus(OVERLAP), now)) {
+            add(state, session.getId(), session.getExpiresAt());
+        }
+        watermark = now;
+    }
+
+    /** true si la sesión fue revocada. */
+    public boolean isRevoked(long sessionId) {
+        State current = state;
+        if (!current.filter().mightContain(sessionId)) {
+            return false;
+        }
+        if (current.revoked().containsKey(sessionId)) {
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /** Aplica en este nodo, sin esperar la próxima lectura, una revocación ya guardada. */
+    public void revoke(long sessionId, Instant expiresAt) {
+        add(state, sessionId, expiresAt);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("security.sessions.revoked", this, r -> r.state.revoked().size())
+                .description("Sesiones revocadas y no vencidas en memoria")
+                .register(registry);
+        FunctionCounter.builder("security.sessions.revoked.false_positives", falsePositives, LongAdder::sum)
+                .description("Consultas en que el filtro de Bloom dio positivo sin que la sesión estuviera revocada")
+                .register(registry);
+    }
+
+    // Primero el set: quien vea el bit prendido encuentra la sesión en el set
+    private static void add(State state, long sessionId, Instant expiresAt) {
+        state.revoked().put(sessionId, expiresAt);
+        state.filter().put(sessionId);
+    }
+
+    /**
+     * Filtro de Bloom de ids, con bits en un AtomicLongArray para admitir altas concurrentes
+     * con lecturas sin locks. Las k posiciones salen de dos hashes (Kirsch-Mitzenmacher).
+     */
+    static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final long bits;
+        private final int hashes;
+
+        BloomFilter(long expectedInsertions, double falsePositiveRate) {
+            long n = Math.max(1, expectedInsertions);
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+            this.words = new AtomicLongArray(wordCount);
+            this.bits = wordCount * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        }
+
+        void put(long key) {
+            long hash = mix(key);
+            long h1 = hash >>> 32;
+            long h2 = hash & 0xFFFFFFFFL;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (h1 + i * h2) % bits;
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word = words.get(index);
+                while ((word & mask) == 0) {
+                    long witness = words.compareAndExchange(index, word, word | mask);
+                    if (witness == word) {
+                        break;
+                    }
+                    word = witness;
+                }
+            }
+        }
+
+        boolean mightContain(long key) {
+            long hash = mix(key);
+            long h1 = hash >>> 32;
+            long h2 = hash & 0xFFFFFFFFL;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (h1 + i * h2) % bits;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Finalizador de MurmurHash3: los ids son consecutivos y hay que dispersarlos
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            key *= 0xc4ceb9fe1a85ec53L;
+            key ^= key >>> 33;
+            return key;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.tavio.lemon.domain.service;
+
+import com.tavio.lemon.web.dto.TaskDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Cambio sobre una tarea, publicado por TaskService y el write-behind de completed.
+ * Los listeners lo reciben después del commit (ver TaskEventHub).
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class TaskChangeEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Long userId;
+    private final Long taskId;
+    /** Estado de la tarea después del cambio; null en DELETED y en los cambios de completed. */
+    private final TaskDto task;
+    /** Valor nuevo de completed en los cambios del write-behind (task null); null en los demás. */
+    private final Boolean completed;
+
+    public TaskChangeEvent(Type type, Long userId, Long taskId, TaskDto task) {
+        this(type, userId, taskId, task, null);
+    }
+}
@@ -0,0 +1,181 @@
+package com.tavio.lemon.domain.service;
+
+import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.repository.UserTaskVersionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cola write-behind para el flag {@code completed} de las tareas.
+ * Varios cambios sobre la misma tarea dentro de un intervalo se combinan en uno,
+ * y cada flush escribe todo lo pendiente con un UPDATE ... WHERE id IN (...) por valor.
+ * <p>
+ * Un cambio sigue en la cola hasta que su flush hace commit. Antes del UPDATE el flush bloquea
+ * las filas y descarta los cambios que ya no están en la cola: una escritura que llamó a
+ * {@link #discard} antes gana, y una posterior espera el lock y escribe después del flush.
+ * Con la cola llena ({@code tasks.completion.max-pending}) el cambio se escribe en el momento.
+ */
+@Component
+public class TaskCompletionWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskCompletionWriteBehind.class);
+    private static final int MAX_IDS_PER_UPDATE = 1000;
+    private static final int SHUTDOWN_FLUSH_ATTEMPTS = 3;
+
+    private final TaskRepository repo;
+    private final UserTaskVersionRepository versionRepository;
+    private final TaskStatsService stats;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher events;
+    private final Map<Long, Change> pending = new ConcurrentHashMap<>();
+    private final int maxPending;
+    private final ScheduledExecutorService executor;
+
+    // El dueño viaja con el cambio solo para notificarlo después del flush
+    private record Change(Long userId, boolean completed) {
+    }
+
+    @Autowired
+    public TaskCompletionWriteBehind(TaskRepository repo,
+                                     UserTaskVersionRepository versionRepository,
+                                     TaskStatsService stats,
+                                     PlatformTransactionManager transactionManager,
+                                     ApplicationEventPublisher events,
+                                     @Value("${tasks.completion.flush-interval:500ms}") Duration flushInterval,
+                                     @Value("${tasks.completion.max-pending:100000}") int maxPending) {
+        this.repo = repo;
+        this.versionRepository = versionRepository;
+        this.stats = stats;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.events = events;
+        this.maxPending = maxPending;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "task-completion-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalMs = flushInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::flushSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void enqueue(Long taskId, Long userId, boolean completed) {
+        Change change = new Change(userId, completed);
+        if (pending.size() < maxPending || pending.containsKey(taskId)) {
+            pending.put(taskId, change);
+            return;
+        }
+        // Cola llena (flush lento o base caída): se escribe en el hilo del llamador, que recibe el error si falla
+        pending.put(taskId, change);
+        try {
+            write(new HashMap<>(Map.of(taskId, change)), completed);
+        } finally {
+            pending.remove(taskId, change);
+        }
+    }
+
+    /**
+     * Descarta un cambio pendiente. Se usa cuando la tarea se reescribe o se
+     * elimina por otro camino, para que un flush tardío no pise ese cambio.
+     * Hay que llamarlo antes de escribir la tarea: si un flush en curso ya bloqueó
+     * la fila, la escritura espera a su commit y queda después.
+     */
+    public void discard(Long taskId) {
+        pending.remove(taskId);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Escribe todos los cambios pendientes. Devuelve la cantidad de tareas actualizadas.
+     */
+    public synchronized int flush() {
+        // Las entradas quedan en la cola: si el flush falla, se reintentan en el próximo
+        Map<Long, Change> toComplete = new HashMap<>();
+        Map<Long, Change> toReopen = new HashMap<>();
+        pending.forEach((id, change) -> (change.completed() ? toComplete : toReopen).put(id, change));
+        return write(toComplete, true) + write(toReopen, false);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        // Flush final en el hilo de shutdown, antes de que se cierre el DataSource
+        for (int attempt = 1; attempt <= SHUTDOWN_FLUSH_ATTEMPTS; attempt++) {
+            try {
+                flush();
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Falló el flush final de completed (intento {})", attempt, ex);
+            }
+        }
+        log.error("Se descartan {} cambios de completed sin persistir", pending.size());
+    }
+
+    private int write(Map<Long, Change> changes, boolean completed) {
+        List<Long> ids = new ArrayList<>(changes.keySet());
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_UPDATE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_UPDATE, ids.size()));
+            // En la misma transacción que el UPDATE, para que ningún ETag quede apuntando a datos viejos
+            List<Long> written = tx.execute(status -> {
+                // Con las filas bloqueadas, un cambio descartado o reemplazado ya no se escribe
+                List<Long> current = repo.lockForCompletion(chunk).stream()
+                        .filter(id -> changes.get(id).equals(pending.get(id)))
+                        .toList();
+                if (current.isEmpty()) {
+                    return current;
+                }
+                // Antes del UPDATE: solo cuentan las tareas cuyo completed cambia
+                Map<Long, TaskStatsService.Delta> deltas = new HashMap<>();
+                for (TaskRepository.CompletionChange change : repo.findCompletionChanges(current, completed)) {
+                    deltas.computeIfAbsent(change.getUserId(), u -> new TaskStatsService.Delta())
+                            .completion(change.getDueDate(), completed, change.getTasks());
+                }
+                repo.updateCompleted(current, completed, LocalDateTime.now());
+                deltas.forEach(stats::apply);
+                versionRepository.incrementForTasks(current);
+                return current;
+            });
+            // Ya commiteado: sale de la cola salvo que haya llegado un cambio más nuevo
+            for (Long id : chunk) {
+                pending.remove(id, changes.get(id));
+            }
+            // Sin el resto de la tarea: el cliente la vuelve a pedir si la necesita
+            for (Long id : written) {
+                events.publishEvent(new TaskChangeEvent(TaskChangeEvent.Type.UPDATED, changes.get(id).userId(), id,
+                        null, completed));
+            }
+            updated += written.size();
+        }
+        return updated;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Falló el flush de completed; se reintenta en el próximo ciclo", ex);
+        }
+    }
+}
@@ -1,36 +1,330 @@
 package com.tavio.lemon.domain.service;
 
 
+import com.tavio.lemon.domain.repository.TaskCursor;
+import com.tavio.lemon.domain.repository.TaskFilter;
 import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.repository.TaskRepositoryCustom;
+import com.tavio.lemon.domain.repository.TaskTombstoneRepository;
+import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.domain.repository.UserTaskVersionRepository;
 import com.tavio.lemon.entity.TaskEntity;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.web.dto.TaskBatchOperation;
+import com.tavio.lemon.web.dto.TaskBatchResult;
+import com.tavio.lemon.web.dto.TaskDto;
+import com.tavio.lemon.web.dto.TaskStatsDto;
+import com.tavio.lemon.web.mapper.TaskMapper;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.http.HttpStatus.FORBIDDEN;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
 
 @Service
+@Timed(value = "service.calls", histogram = true)
 public class TaskService {
     private final TaskRepository repo;
+    private final UserRepository userRepository;
+    private final TaskTombstoneRepository tombstoneRepository;
+    private final UserTaskVersionRepository versionRepository;
+    private final TaskCompletionWriteBehind completionWriteBehind;
+    private final TaskStatsService stats;
+    private final ApplicationEventPublisher events;
 
     @Autowired
-    public TaskService(TaskRepository repo) {
+    public TaskService(TaskRepository repo,
+                       UserRepository userRepository,
+                       TaskTombstoneRepository tombstoneRepository,
+                       UserTaskVersionRepository versionRepository,
+                       TaskCompletionWriteBehind completionWriteBehind,
+                       TaskStatsService stats,
+                       ApplicationEventPublisher events) {
         this.repo = repo;
+        this.userRepository = userRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.versionRepository = versionRepository;
+        this.completionWriteBehind = completionWriteBehind;
+        this.stats = stats;
+        this.events = events;
+    }
+
+    /**
+     * Versión de la colección de tareas de un usuario: cambia con cada escritura sobre ellas.
+     * Se consulta por PK, sin tocar la tabla tasks.
+     */
+    public long getVersion(Long userId) {
+        return versionRepository.findVersion(userId).orElse(0L);
+    }
+
+    /** Total, completadas, vencidas y del día, desde los contadores: no recorre las tareas. */
+    public TaskStatsDto getStats(Long userId) {
+        return stats.getStats(userId);
     }
 
     public List<TaskEntity> getAllByUser(Long userId) {
         return repo.findByUserId(userId);
     }
 
+    @Transactional(readOnly = true)
+    public List<TaskDto> getDtoPageByUser(Long userId, TaskFilter filter, TaskCursor after, int limit) {
+        return repo.findDtoPageByUserId(userId, filter, after, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TaskDto> searchByUser(Long userId, String query, int offset, int limit) {
+        return repo.searchDtosByUserId(userId, query, offset, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<TaskDto> getDtoById(Long id) {
+        return repo.findDtoById(id);
+    }
+
     public Optional<TaskEntity> getById(Long id) {
         return repo.findById(id);
     }
 
+    /**
+     * Recorre las tareas de un usuario (o de todos si userId es null) sin
+     * materializar la lista: cada fila se entrega a {@code sink} a medida que llega.
+     */
+    @Transactional(readOnly = true)
+    public void exportByUser(Long userId, Consumer<TaskDto> sink) {
+        try (Stream<TaskDto> rows = userId != null
+                ? repo.streamDtosByUserId(userId)
+                : repo.streamAllDtos()) {
+            rows.forEach(sink);
+        }
+    }
+
+    public Optional<Long> getOwnerId(Long id) {
+        return repo.findOwnerIdById(id);
+    }
+
+    /**
+     * Encola el cambio de {@code completed}; se persiste en el próximo flush de
+     * TaskCompletionWriteBehind. No verifica propiedad: eso queda a cargo del llamador,
+     * que pasa el dueño ya verificado para notificar el cambio después del flush.
+     */
+    public void setCompletedAsync(Long id, Long ownerId, boolean completed) {
+        completionWriteBehind.enqueue(id, ownerId, completed);
+    }
+
+    /**
+     * Reescribe una tarea de {@code userId} con un único UPDATE ... WHERE id = ? AND user_id = ?,
+     * sin cargarla antes: en Postgres la misma sentencia devuelve la fila nueva y el estado previo
+     * que necesitan los contadores (ver {@link TaskRepositoryCustom#updateOwned}).
+     * @throws ResponseStatusException 404 si no existe, 403 si es de otro usuario.
+     */
+    @Transactional
+    public TaskDto updateOwned(Long id, Long userId, TaskDto dto) {
+        completionWriteBehind.discard(id);
+        TaskRepositoryCustom.OwnedUpdate result = repo.updateOwned(id, userId, dto.getTitle(),
+                        dto.getDescription(), dto.isCompleted(), dto.getDueDate(), LocalDateTime.now())
+                .orElseThrow(() -> notFoundOrForbidden(id));
+        stats.apply(userId, stateOf(result.previous()),
+                new TaskStatsService.TaskState(dto.isCompleted(), dto.getDueDate()));
+        bumpVersion(userId);
+        publish(TaskChangeEvent.Type.UPDATED, userId, id, result.task());
+        return result.task();
+    }
+
+    /**
+     * Elimina una tarea de {@code userId} con un único DELETE ... WHERE id = ? AND user_id = ?,
+     * dejando su lápida para GET /tasks/changes.
+     * @throws ResponseStatusException 404 si no existe, 403 si es de otro usuario.
+     */
+    @Transactional
+    public void deleteOwned(Long id, Long userId) {
+        completionWriteBehind.discard(id);
+        tombstoneRepository.insertOwned(id, userId, LocalDateTime.now());
+        TaskRepositoryCustom.PreviousState previous = repo.deleteOwned(id, userId)
+                .orElseThrow(() -> notFoundOrForbidden(id));
+        stats.apply(userId, stateOf(previous), null);
+        bumpVersion(userId);
+        publish(TaskChangeEvent.Type.DELETED, userId, id, null);
+    }
+
+    // Solo en el camino de error: distingue "no existe" de "es ajena"
+    private ResponseStatusException notFoundOrForbidden(Long id) {
+        return repo.existsById(id)
+                ? new ResponseStatusException(FORBIDDEN, "No autorizado")
+                : new ResponseStatusException(NOT_FOUND, "Tarea no encontrada");
+    }
+
+    @Transactional
     public TaskEntity save(TaskEntity task) {
-        return repo.save(task);
+        boolean isNew = task.getId() == null;
+        Optional<TaskRepository.StatsState> before = Optional.empty();
+        if (!isNew) {
+            completionWriteBehind.discard(task.getId());
+            before = repo.findStatsState(task.getId());
+        }
+        TaskEntity saved = repo.save(task);
+        Long userId = saved.getUser().getId();
+        // Si cambió de dueño, se descuenta del anterior
+        if (before.isPresent() && !before.get().getUserId().equals(userId)) {
+            stats.apply(before.get().getUserId(), TaskStatsService.TaskState.of(before.get()), null);
+            before = Optional.empty();
+        }
+        stats.apply(userId, before.map(TaskStatsService.TaskState::of).orElse(null), stateOf(saved));
+        bumpVersion(userId);
+        publish(isNew ? TaskChangeEvent.Type.CREATED : TaskChangeEvent.Type.UPDATED,
+                userId, saved.getId(), TaskMapper.toDto(saved));
+        return saved;
+    }
+
+    /**
+     * Aplica un lote de operaciones sobre tareas de {@code userId} en una sola transacción.
+     * La propiedad de las tareas se verifica con un único SELECT ... IN, y los
+     * INSERT/UPDATE/DELETE se envían en batches JDBC al hacer flush.
+     * Los errores de cada operación (400/403/404) se reportan en su resultado
+     * sin abortar el resto del lote.
+     */
+    @Transactional
+    public List<TaskBatchResult> applyBatch(Long userId, List<TaskBatchOperation> ops) {
+        Set<Long> ids = ops.stream()
+                .filter(op -> op.getOp() != TaskBatchOperation.Type.CREATE && op.getId() != null)
+                .map(TaskBatchOperation::getId)
+                .collect(Collectors.toSet());
+        Map<Long, TaskEntity> existing = new HashMap<>();
+        if (!ids.isEmpty()) {
+            repo.findAllById(ids).forEach(t -> existing.put(t.getId(), t));
+        }
+
+        UserEntity owner = null;
+        List<TaskEntity> toPersist = new ArrayList<>();
+        List<TaskEntity> toDelete = new ArrayList<>();
+        List<TaskBatchResult> results = new ArrayList<>(ops.size());
+        TaskStatsService.Delta delta = new TaskStatsService.Delta();
+        boolean updated = false;
+
+        for (int i = 0; i < ops.size(); i++) {
+            TaskBatchOperation op = ops.get(i);
+            TaskBatchResult.TaskBatchResultBuilder result = TaskBatchResult.builder()
+                    .index(i)
+                    .op(op.getOp())
+                    .id(op.getId());
+
+            if (op.getOp() != TaskBatchOperation.Type.DELETE && !hasTitle(op.getTask())) {
+                results.add(result.status(400).error("title es obligatorio").build());
+                continue;
+            }
+
+            if (op.getOp() == TaskBatchOperation.Type.CREATE) {
+                if (owner == null) {
+                    // Referencia sin SELECT: solo se usa para escribir user_id
+                    owner = userRepository.getReferenceById(userId);
+                }
+                TaskDto dto = op.getTask();
+                dto.setId(null);
+                TaskEntity entity = TaskMapper.toEntity(dto, owner);
+                toPersist.add(entity);
+                delta.change(null, stateOf(entity));
+                results.add(result.status(200).build());
+                continue;
+            }
+
+            TaskEntity task = op.getId() != null ? existing.get(op.getId()) : null;
+            if (task == null) {
+                results.add(result.status(404).error("Tarea no encontrada").build());
+                continue;
+            }
+            if (!task.getUser().getId().equals(userId)) {
+                results.add(result.status(403).error("No autorizado").build());
+                continue;
+            }
+            // Como en los demás caminos de escritura: un PATCH /completed pendiente no puede
+            // pisar después lo que escribe el lote
+            completionWriteBehind.discard(task.getId());
+
+            if (op.getOp() == TaskBatchOperation.Type.UPDATE) {
+                TaskDto dto = op.getTask();
+                TaskStatsService.TaskState before = stateOf(task);
+                task.setTitle(dto.getTitle());
+                task.setDescription(dto.getDescription());
+                task.setCompleted(dto.isCompleted());
+                task.setDueDate(dto.getDueDate());
+                delta.change(before, stateOf(task));
+                updated = true;
+                results.add(result.status(200).task(TaskMapper.toDto(task)).build());
+            } else {
+                // Una vez borrada, operaciones posteriores sobre el mismo id dan 404
+                existing.remove(op.getId());
+                toDelete.add(task);
+                delta.change(stateOf(task), null);
+                results.add(result.status(204).build());
+            }
+        }
+
+        repo.saveAll(toPersist);
+        if (!toDelete.isEmpty()) {
+            // Antes del deleteAll: el INSERT ... SELECT necesita que las tareas sigan existiendo
+            tombstoneRepository.insertForTasks(toDelete.stream().map(TaskEntity::getId).toList(),
+                    LocalDateTime.now());
+        }
+        repo.deleteAll(toDelete);
+        if (updated || !toPersist.isEmpty() || !toDelete.isEmpty()) {
+            stats.apply(userId, delta);
+            bumpVersion(userId);
+        }
+
+        // Con ids de secuencia ya asignados en persist, completamos los resultados de CREATE
+        int created = 0;
+        for (TaskBatchResult r : results) {
+            if (r.getOp() == TaskBatchOperation.Type.CREATE && r.getStatus() == 200) {
+                TaskEntity saved = toPersist.get(created++);
+                r.setId(saved.getId());
+                r.setTask(TaskMapper.toDto(saved));
+            }
+        }
+        for (TaskBatchResult r : results) {
+            if (r.getStatus() == 204) {
+                publish(TaskChangeEvent.Type.DELETED, userId, r.getId(), null);
+            } else if (r.getStatus() == 200) {
+                publish(r.getOp() == TaskBatchOperation.Type.CREATE
+                        ? TaskChangeEvent.Type.CREATED
+                        : TaskChangeEvent.Type.UPDATED, userId, r.getId(), r.getTask());
+            }
+        }
+        return results;
+    }
+
+    // En la misma transacción que la escritura (salvo en delete)
+    private void bumpVersion(Long userId) {
+        versionRepository.bump(userId);
+    }
+
+    // Los listeners lo reciben recién después del commit (@TransactionalEventListener)
+    private void publish(TaskChangeEvent.Type type, Long userId, Long taskId, TaskDto task) {
+        events.publishEvent(new TaskChangeEvent(type, userId, taskId, task));
+    }
+
+    private static TaskStatsService.TaskState stateOf(TaskEntity task) {
+        return new TaskStatsService.TaskState(task.isCompleted(), task.getDueDate());
+    }
+
+    private static TaskStatsService.TaskState stateOf(TaskRepositoryCustom.PreviousState previous) {
+        return new TaskStatsService.TaskState(previous.completed(), previous.dueDate());
     }
 
-    public void delete(Long id) {
-        repo.deleteById(id);
+    private static boolean hasTitle(TaskDto dto) {
+        return dto != null && dto.getTitle() != null && !dto.getTitle().isBlank();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+package com.tavio.lemon.domain.service;
+
+import com.tavio.lemon.domain.repository.TaskDueCountRepository;
+import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.repository.UserTaskStatsRepository;
+import com.tavio.lemon.entity.UserTaskStatsEntity;
+import com.tavio.lemon.web.dto.TaskStatsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Contadores de tareas por usuario para GET /tasks/stats: total y completadas en
+ * user_task_stats, y las abiertas con vencimiento por día en task_due_counts, de donde
+ * vencidas y del día salen sumando unas pocas filas. Los caminos de escritura de TaskService
+ * y TaskCompletionWriteBehind aplican la diferencia en su misma transacción; cada noche
+ * {@link #reconcile()} los recalcula desde tasks y corrige lo que se haya desviado.
+ */
+@Service
+public class TaskStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskStatsService.class);
+
+    /** Lo que una tarea aporta a los contadores. */
+    public record TaskState(boolean completed, LocalDateTime dueDate) {
+
+        public static TaskState of(TaskRepository.StatsState state) {
+            return new TaskState(state.isCompleted(), state.getDueDate());
+        }
+
+        // Día en que cuenta como abierta por vencer, o null si no cuenta
+        LocalDate openDueDay() {
+            return !completed && dueDate != null ? dueDate.toLocalDate() : null;
+        }
+    }
+
+    /** Diferencia acumulada sobre los contadores de un usuario, para aplicarla de una vez. */
+    public static final class Delta {
+        private long total;
+        private long completed;
+        // Ordenado: las filas de cada día se bloquean siempre en el mismo orden
+        private final Map<LocalDate, Long> open = new TreeMap<>();
+
+        /** Una tarea pasa de {@code before} a {@code after}; null = no existía o ya no existe. */
+        public Delta change(TaskState before, TaskState after) {
+            if (before != null) {
+                total--;
+                completed -= before.completed() ? 1 : 0;
+            }
+            if (after != null) {
+                total++;
+                completed += after.completed() ? 1 : 0;
+            }
+            LocalDate from = before != null ? before.openDueDay() : null;
+            LocalDate to = after != null ? after.openDueDay() : null;
+            if (!Objects.equals(from, to)) {
+                addOpen(from, -1);
+                addOpen(to, 1);
+            }
+            return this;
+        }
+
+        /** {@code tasks} tareas con ese vencimiento pasan a {@code completed}. */
+        public Delta completion(LocalDateTime dueDate, boolean completed, long tasks) {
+            this.completed += completed ? tasks : -tasks;
+            addOpen(dueDate != null ? dueDate.toLocalDate() : null, completed ? -tasks : tasks);
+            return this;
+        }
+
+        boolean isEmpty() {
+            return total == 0 && completed == 0 && open.values().stream().allMatch(n -> n == 0);
+        }
+
+        private void addOpen(LocalDate day, long tasks) {
+            if (day != null) {
+                open.merge(day, tasks, Long::sum);
+            }
+        }
+    }
+
+    private final UserTaskStatsRepository statsRepository;
+    private final TaskDueCountRepository dueCountRepository;
+
+    @Autowired
+    public TaskStatsService(UserTaskStatsRepository statsRepository,
+                            TaskDueCountRepository dueCountRepository) {
+        this.statsRepository = statsRepository;
+        this.dueCountRepository = dueCountRepository;
+    }
+
+    /** Contadores del usuario; vencidas y del día se calculan respecto de la fecha actual. */
+    @Transactional(readOnly = true)
+    public TaskStatsDto getStats(Long userId) {
+        LocalDate today = LocalDate.now();
+        UserTaskStatsEntity totals = statsRepository.findById(userId)
+                .orElseGet(() -> UserTaskStatsEntity.builder().userId(userId).build());
+        TaskDueCountRepository.DueTotals due = dueCountRepository.sumUpTo(userId, today);
+        return TaskStatsDto.builder()
+                .total(totals.getTotal())
+                .completed(totals.getCompleted())
+                .overdue(due.getOverdue())
+                .dueToday(due.getDueToday())
+                .build();
+    }
+
+    /** Aplica el cambio de una tarea; corre en la transacción del llamador. */
+    public void apply(Long userId, TaskState before, TaskState after) {
+        apply(userId, new Delta().change(before, after));
+    }
+
+    /** Aplica una diferencia acumulada; corre en la transacción del llamador. */
+    public void apply(Long userId, Delta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        // Upserts: la primera escritura de un usuario (o de un día) crea la fila sin carreras
+        if (delta.total != 0 || delta.completed != 0) {
+            statsRepository.add(userId, delta.total, delta.completed);
+        }
+        delta.open.forEach((day, tasks) -> {
+            if (tasks != 0) {
+                dueCountRepository.add(userId, day, tasks);
+            }
+        });
+    }
+
+    /**
+     * Recalcula todos los contadores desde tasks. Es la red de seguridad para desvíos que los
+     * caminos de escritura no ven (SQL a mano, restauraciones) y borra los días sin tareas abiertas.
+     * Cada paso es su propia transacción y solo reescribe las filas que no coinciden, así que una
+     * escritura concurrente espera a lo sumo el paso que toca su fila.
+     */
+    @Scheduled(cron = "${tasks.stats.reconcile-cron:0 15 4 * * *}")
+    public void reconcile() {
+        int corrected = statsRepository.reconcile();
+        int days = dueCountRepository.reconcile();
+        int removed = dueCountRepository.deleteEmptyDays();
+        log.info("Contadores de tareas reconciliados: {} usuarios corregidos, {} días corregidos, {} días borrados",
+                corrected, days, removed);
+    }
+}
@@ -0,0 +1,108 @@
+package com.tavio.lemon.domain.service;
+
+import com.tavio.lemon.domain.repository.TaskCursor;
+import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.repository.TaskTombstoneRepository;
+import com.tavio.lemon.web.dto.TaskChangesDto;
+import com.tavio.lemon.web.dto.TaskDto;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.GONE;
+
+/**
+ * Sincronización incremental: qué tareas de un usuario cambiaron o se borraron desde un cursor.
+ * <p>
+ * El cursor es la posición (updatedAt, id) del último cambio entregado. Al terminar de recorrer
+ * los cambios, el cursor siguiente se atrasa {@code lag} respecto de ahora: una transacción que
+ * escribió su updatedAt antes de que leyéramos pero todavía no había hecho commit aparece en el
+ * próximo pedido. El precio es que algunas tareas pueden llegar dos veces; el cliente aplica
+ * los cambios por id, así que repetirlos no tiene efecto.
+ */
+@Service
+@Timed(value = "service.calls", histogram = true)
+public class TaskSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskSyncService.class);
+
+    private final TaskRepository taskRepository;
+    private final TaskTombstoneRepository tombstoneRepository;
+    private final Duration lag;
+    private final Duration retention;
+
+    @Autowired
+    public TaskSyncService(TaskRepository taskRepository,
+                           TaskTombstoneRepository tombstoneRepository,
+                           @Value("${tasks.changes.lag:5s}") Duration lag,
+                           @Value("${tasks.tombstones.retention:30d}") Duration retention) {
+        this.taskRepository = taskRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.lag = lag;
+        this.retention = retention;
+    }
+
+    /**
+     * Cambios de {@code userId} posteriores a {@code since}; con since null devuelve todas sus
+     * tareas (sincronización inicial).
+     * @throws ResponseStatusException 410 si since es más viejo que la retención de las lápidas.
+     */
+    @Transactional(readOnly = true)
+    public TaskChangesDto getChanges(Long userId, TaskCursor since, int limit) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (since != null && since.getTimestamp().isBefore(now.minus(retention))) {
+            throw new ResponseStatusException(GONE, "Cursor vencido: sincronizar desde cero");
+        }
+        TaskCursor from = since != null ? since : new TaskCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+        List<TaskDto> updated = taskRepository.findChangedDtos(
+                userId, from.getTimestamp(), from.getId(), Limit.of(limit + 1));
+        boolean hasMore = updated.size() > limit;
+        if (hasMore) {
+            updated = updated.subList(0, limit);
+        }
+
+        TaskCursor next;
+        LocalDateTime windowEnd;
+        if (hasMore) {
+            TaskDto last = updated.get(updated.size() - 1);
+            next = new TaskCursor(last.getUpdatedAt(), last.getId());
+            windowEnd = last.getUpdatedAt();
+        } else {
+            LocalDateTime safe = now.minus(lag);
+            next = safe.isAfter(from.getTimestamp()) ? new TaskCursor(safe, 0L) : from;
+            windowEnd = now;
+        }
+
+        // Sin since el cliente no tiene nada que borrar
+        List<Long> deleted = since != null
+                ? tombstoneRepository.findDeletedIds(userId, since.getTimestamp(), windowEnd)
+                : List.of();
+
+        return TaskChangesDto.builder()
+                .updated(updated)
+                .deleted(deleted)
+                .next(next.encode())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Scheduled(cron = "${tasks.tombstones.purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeTombstones() {
+        int purged = tombstoneRepository.deleteOlderThan(LocalDateTime.now().minus(retention));
+        log.info("Lápidas de tareas purgadas: {}", purged);
+    }
+}
@@ -0,0 +1,85 @@
+package com.tavio.lemon.domain.service;
+
+import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.entity.UserEntity;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versión vigente de los tokens de cada usuario, en memoria, para validar JWT sin ir a la base.
+ * <p>
+ * Se recarga entera cada {@code security.token-versions.refresh} con una sola consulta de
+ * dos columnas; entre recargas, los cambios hechos en este nodo se aplican enseguida y los
+ * de otros nodos se ven en la próxima recarga. Un id que no está en la tabla (usuario
+ * registrado en otro nodo después de la última recarga) se busca una vez en la base.
+ */
+@Service
+public class TokenVersionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenVersionRegistry.class);
+    // Usuario borrado o deshabilitado: ningún token es válido
+    private static final int REVOKED = Integer.MAX_VALUE;
+
+    private final UserRepository userRepository;
+    // Se reemplaza entera en cada recarga; nunca se modifica después de publicada
+    private volatile Map<Long, Integer> versions = Map.of();
+    // Cambios locales y altas posteriores a la última recarga; tienen prioridad sobre versions
+    private final Map<Long, Integer> overrides = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TokenVersionRegistry(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${security.token-versions.refresh:30s}",
+            initialDelayString = "${security.token-versions.refresh:30s}")
+    public void reload() {
+        // Antes de consultar: lo que se cambie durante la recarga queda en overrides
+        overrides.clear();
+        List<UserRepository.TokenState> states = userRepository.findTokenStates();
+        Map<Long, Integer> fresh = new HashMap<>(Math.max(16, states.size() * 4 / 3 + 1));
+        for (UserRepository.TokenState state : states) {
+            fresh.put(state.getId(), state.isEnabled() ? state.getTokenVersion() : REVOKED);
+        }
+        versions = fresh;
+        log.debug("Versiones de token recargadas: {} usuarios", fresh.size());
+    }
+
+    /** true si un token emitido con {@code tokenVersion} sigue siendo válido para el usuario. */
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        Integer current = overrides.get(userId);
+        if (current == null) {
+            current = versions.get(userId);
+        }
+        if (current == null) {
+            // La consulta va fuera del mapa: computeIfAbsent retendría el lock del bin durante toda
+            // la ida a la base. Si update/revoke escribió mientras tanto, putIfAbsent deja ese valor.
+            // Un id inexistente queda cacheado como REVOKED hasta la próxima recarga.
+            int found = userRepository.findTokenState(userId)
+                    .map(state -> state.isEnabled() ? state.getTokenVersion() : REVOKED)
+                    .orElse(REVOKED);
+            Integer raced = overrides.putIfAbsent(userId, found);
+            current = raced != null ? raced : found;
+        }
+        return tokenVersion >= current;
+    }
+
+    /** Aplica en este nodo, sin esperar la recarga, el estado de un usuario recién guardado. */
+    public void update(UserEntity user) {
+        overrides.put(user.getId(), user.isEnabled() ? user.getTokenVersion() : REVOKED);
+    }
+
+    public void revoke(Long userId) {
+        overrides.put(userId, REVOKED);
+    }
+}
@@ -1,30 +1,67 @@
 package com.tavio.lemon.domain.service;
 
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.tavio.lemon.domain.repository.UserRepository;
 import com.tavio.lemon.entity.UserEntity;
 import com.tavio.lemon.security.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.userdetails.User;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
 public class UserSecurityService implements UserDetailsService {
 
     private final UserRepository userRepository;
 
+    // Principals ya construidos, por username. El TTL acota cuánto puede quedar
+    // desactualizada una entrada en otro nodo; en este nodo se invalida con evict().
+    private final Cache<String, UserDetailsImpl> principals;
+
     @Autowired
-    public UserSecurityService(UserRepository userRepository) {
+    public UserSecurityService(UserRepository userRepository,
+                               @Value("${security.principal-cache.ttl:5m}") Duration ttl,
+                               @Value("${security.principal-cache.max-size:10000}") long maxSize) {
         this.userRepository = userRepository;
+        this.principals = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) {
+        UserDetailsImpl cached = principals.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
         UserEntity user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User no encontrado"));
-        return UserDetailsImpl.build(user);
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        principals.put(username, principal);
+        return principal;
+    }
+
+    /**
+     * Descarta el principal cacheado de un usuario.
+     * Se busca por id porque un update puede haber cambiado el username.
+     */
+    public void evict(Long userId) {
+        principals.asMap().values().removeIf(p -> p.getId().equals(userId));
+    }
+
+    public long getCacheHits() {
+        return principals.stats().hitCount();
+    }
+
+    public long getCacheMisses() {
+        return principals.stats().missCount();
     }
 }
@@ -2,6 +2,7 @@ package com.tavio.lemon.domain.service;
 
 import com.tavio.lemon.domain.repository.UserRepository;
 import com.tavio.lemon.entity.UserEntity;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -9,9 +10,16 @@ import java.util.List;
 import java.util.Optional;
 
 @Service
+@Timed(value = "service.calls", histogram = true)
 public class UserService {
     @Autowired
     private UserRepository repo;
+    @Autowired
+    private UserSecurityService userSecurityService;
+    @Autowired
+    private TokenVersionRegistry tokenVersions;
+    @Autowired
+    private RefreshTokenService refreshTokens;
 
     public Optional<UserEntity> getByUsername(String username){
         return repo.findByUsername(username);
@@ -24,10 +32,31 @@ public class UserService {
     }
 
     public UserEntity save(UserEntity userEntity){
-        return repo.save(userEntity);
+        UserEntity saved = repo.save(userEntity);
+        userSecurityService.evict(saved.getId());
+        tokenVersions.update(saved);
+        if (!saved.isEnabled()) {
+            refreshTokens.revokeAll(saved.getId());
+        }
+        return saved;
+    }
+
+    /** Habilita o deshabilita un usuario; al deshabilitarlo se cierran todas sus sesiones. */
+    public Optional<UserEntity> setEnabled(Long id, boolean enabled) {
+        return repo.findById(id).map(user -> {
+            user.setEnabled(enabled);
+            return save(user);
+        });
+    }
+
+    /** Cierra todas las sesiones de refresh del usuario (p. ej. al cambiar la contraseña). */
+    public void revokeSessions(Long id) {
+        refreshTokens.revokeAll(id);
     }
 
     public void delete(Long id){
         repo.deleteById(id);
+        userSecurityService.evict(id);
+        tokenVersions.revoke(id);
     }
 }
\ No newline at end of file
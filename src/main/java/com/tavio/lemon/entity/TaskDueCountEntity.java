@@ -0,0 +1,47 @@
+package com.tavio.lemon.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Cantidad de tareas abiertas de un usuario que vencen en un día (ver TaskStatsService).
+ * Una fila puede quedar en cero hasta la reconciliación nocturna, que la borra.
+ */
+@Entity
+@Table(name = "task_due_counts")
+@IdClass(TaskDueCountEntity.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskDueCountEntity {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "due_day")
+    private LocalDate dueDay;
+
+    @Column(name = "open_count", nullable = false)
+    private long openCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private LocalDate dueDay;
+    }
+}
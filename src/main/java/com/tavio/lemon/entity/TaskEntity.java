@@ -6,18 +6,33 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tasks")
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(
+        name = "tasks",
+        indexes = {
+                @Index(name = "idx_tasks_user_created", columnList = "user_id, created_at, id"),
+                @Index(name = "idx_tasks_user_completed_due", columnList = "user_id, completed, due_date"),
+                @Index(name = "idx_tasks_user_updated", columnList = "user_id, updated_at, id")
+        }
+)
+@EntityListeners(AuditingEntityListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class TaskEntity {
+    // Secuencia en lugar de IDENTITY para que Hibernate pueda agrupar los INSERT en batches JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_seq")
+    @SequenceGenerator(name = "tasks_seq", sequenceName = "tasks_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -32,6 +47,12 @@ public class TaskEntity {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // Lo mantiene la auditoría de Spring Data; los UPDATE masivos de TaskRepository lo setean a mano.
+    // Es la base de GET /tasks/changes.
+    @LastModifiedDate
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
     @Column(name = "due_date")
     private LocalDateTime dueDate;
 
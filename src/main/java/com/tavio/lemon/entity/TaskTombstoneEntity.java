@@ -0,0 +1,39 @@
+package com.tavio.lemon.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro de una tarea borrada, para que GET /tasks/changes pueda informar el borrado.
+ * Se conservan por un tiempo limitado (tasks.tombstones.retention).
+ */
+@Entity
+@Table(
+        name = "task_tombstones",
+        indexes = @Index(name = "idx_task_tombstones_user_deleted", columnList = "user_id, deleted_at")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskTombstoneEntity {
+
+    @Id
+    @Column(name = "task_id")
+    private Long taskId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
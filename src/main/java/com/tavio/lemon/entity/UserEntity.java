@@ -1,11 +1,13 @@
 package com.tavio.lemon.entity;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -13,6 +15,8 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import java.time.Instant;
 
 @Entity
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(
         name = "users",
         uniqueConstraints = @UniqueConstraint(columnNames = "username"),
@@ -51,6 +55,13 @@ public class UserEntity {
     @Column(name = "updated_at")
     private Instant updatedAt;
 
+    // Deshabilitado: no puede loguearse ni refrescar y sus tokens dejan de valer
     @Column(nullable = false)
+    @Builder.Default
     private boolean enabled = true;
+
+    // Se incrementa para invalidar los JWT ya emitidos (claim ver)
+    @Column(name = "token_version", nullable = false)
+    @JsonIgnore
+    private int tokenVersion;
 }
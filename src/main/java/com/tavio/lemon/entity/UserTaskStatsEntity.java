@@ -0,0 +1,33 @@
+package com.tavio.lemon.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totales de las tareas de un usuario (ver TaskStatsService). Las tareas vencidas y del
+ * día se cuentan aparte, por día de vencimiento, en TaskDueCountEntity.
+ */
+@Entity
+@Table(name = "user_task_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserTaskStatsEntity {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private long total;
+
+    @Column(nullable = false)
+    private long completed;
+}
@@ -0,0 +1,31 @@
+package com.tavio.lemon.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Contador de cambios de las tareas de un usuario (ver UserTaskVersionRepository).
+ * Tabla aparte de users para no invalidar la caché de segundo nivel de UserEntity
+ * en cada escritura de tareas.
+ */
+@Entity
+@Table(name = "user_task_versions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserTaskVersionEntity {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private long version;
+}
@@ -0,0 +1,150 @@
+package com.tavio.lemon.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ejecuta el hashing y la verificación de contraseñas en un pool acotado, para
+ * que una ráfaga de logins no ocupe todos los hilos ni toda la CPU.
+ * Cuando el pool y su cola están llenos rechaza enseguida con
+ * {@link PasswordHashingRejectedException} en lugar de encolar sin límite.
+ * Como MeterBinder publica la duración de cada operación, los rechazos y el estado del pool.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean, MeterBinder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder rejected = new LongAdder();
+    private volatile Timer timer;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity) {
+        this.delegate = delegate;
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hashing-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public long getOperationCount() {
+        return operations.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.timer = Timer.builder("security.password.hashing")
+                .description("Duración de encode/matches de contraseñas (sin la espera en cola)")
+                .publishPercentileHistogram()
+                .register(registry);
+        FunctionCounter.builder("security.password.hashing.rejected", rejected, LongAdder::sum)
+                .description("Operaciones rechazadas por pool y cola llenos")
+                .register(registry);
+        Gauge.builder("security.password.hashing.queue", this, BoundedPasswordEncoder::getQueueSize)
+                .register(registry);
+        Gauge.builder("security.password.hashing.active", this, BoundedPasswordEncoder::getActiveCount)
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Callable<T> work) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    operations.increment();
+                    totalNanos.add(elapsed);
+                    maxNanos.accumulate(elapsed);
+                    Timer t = timer;
+                    if (t != null) {
+                        t.record(elapsed, TimeUnit.NANOSECONDS);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Demasiadas operaciones de contraseña en curso");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrumpido esperando el hashing de contraseña", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.tavio.lemon.security;
+
+/**
+ * El executor de hashing de contraseñas está saturado y no acepta más trabajo.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
@@ -16,12 +16,17 @@ public class UserDetailsImpl implements UserDetails {
     private final String username;
     private final String password;
     private final Collection<? extends GrantedAuthority> authorities;
+    private final int tokenVersion;
+    private final boolean enabled;
     private UserDetailsImpl(Long id, String username, String password,
-                            Collection<? extends GrantedAuthority> authorities) {
+                            Collection<? extends GrantedAuthority> authorities,
+                            int tokenVersion, boolean enabled) {
         this.id = id;
         this.username = username;
         this.password = password;
         this.authorities = authorities;
+        this.tokenVersion = tokenVersion;
+        this.enabled = enabled;
     }
 
     public static UserDetailsImpl build(UserEntity user) {
@@ -32,7 +37,25 @@ public class UserDetailsImpl implements UserDetails {
                 user.getId(),
                 user.getUsername(),
                 user.getPassword(),
-                auths
+                auths,
+                user.getTokenVersion(),
+                user.isEnabled()
+        );
+    }
+
+    /**
+     * Principal armado solo con los claims del JWT, sin pasar por la base.
+     * No tiene password: sirve para autorizar requests, no para autenticar credenciales.
+     * Un usuario deshabilitado no llega acá: TokenVersionRegistry rechaza sus tokens.
+     */
+    public static UserDetailsImpl fromToken(Long id, String username, String role, int tokenVersion) {
+        return new UserDetailsImpl(
+                id,
+                username,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role)),
+                tokenVersion,
+                true
         );
     }
 
@@ -54,5 +77,5 @@ public class UserDetailsImpl implements UserDetails {
     @Override public boolean isAccountNonExpired()     { return true; }
     @Override public boolean isAccountNonLocked()      { return true; }
     @Override public boolean isCredentialsNonExpired() { return true; }
-    @Override public boolean isEnabled()               { return true; }
+    @Override public boolean isEnabled()               { return enabled; }
 }
\ No newline at end of file
@@ -26,8 +26,9 @@ public class CorsConfig {
         CorsConfiguration cors = new CorsConfiguration();
 
         cors.setAllowedOriginPatterns(List.of(allowedOrigin));
-        cors.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        cors.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         cors.setAllowedHeaders(List.of("*"));
+        cors.setExposedHeaders(List.of("X-Next-Cursor", "X-Next-Page"));
         cors.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
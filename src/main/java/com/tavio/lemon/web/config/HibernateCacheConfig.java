@@ -0,0 +1,60 @@
+package com.tavio.lemon.web.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.tavio.lemon.entity.TaskEntity;
+import com.tavio.lemon.entity.UserEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Caché de segundo nivel de Hibernate para UserEntity y TaskEntity.
+ * Las regiones se declaran acá de forma explícita (tamaño y TTL); cualquier
+ * otra región que Hibernate pida hace fallar el arranque en lugar de crearse sin límites.
+ * Las estadísticas de cada región (hits, misses, porcentaje de aciertos) se publican por JMX
+ * como javax.cache:type=CacheStatistics.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${cache.user.max-size:10000}") long userMaxSize,
+            @Value("${cache.user.ttl:10m}") Duration userTtl,
+            @Value("${cache.task.max-size:100000}") long taskMaxSize,
+            @Value("${cache.task.ttl:10m}") Duration taskTtl) {
+        // URI única: cada contexto de Spring (p. ej. en tests) tiene su propio CacheManager
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("lemon-hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(UserEntity.class.getName(), region(userMaxSize, userTtl));
+        cacheManager.createCache(TaskEntity.class.getName(), region(taskMaxSize, taskTtl));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateSecondLevelCache(CacheManager hibernateCacheManager) {
+        return props -> {
+            props.put("hibernate.cache.use_second_level_cache", true);
+            props.put("hibernate.cache.region.factory_class", "jcache");
+            props.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+            props.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, Duration ttl) {
+        return new CaffeineConfiguration<>()
+                .setMaximumSize(OptionalLong.of(maxSize))
+                .setExpireAfterWrite(OptionalLong.of(ttl.toNanos()))
+                .setStatisticsEnabled(true)
+                .setManagementEnabled(true);
+    }
+}
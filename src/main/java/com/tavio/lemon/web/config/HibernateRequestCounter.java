@@ -0,0 +1,56 @@
+package com.tavio.lemon.web.config;
+
+import org.hibernate.Interceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+
+/**
+ * Cuenta las sentencias SQL y las entidades cargadas por Hibernate en el hilo actual.
+ * Solo cuenta entre {@link #begin()} y {@link #end()} (lo hace RequestMetricsFilter por request);
+ * fuera de una request (write-behind, jobs) no hace nada.
+ */
+public class HibernateRequestCounter implements StatementInspector, Interceptor {
+
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    public static void begin() {
+        CURRENT.set(new Counts());
+    }
+
+    public static Counts end() {
+        Counts counts = CURRENT.get();
+        CURRENT.remove();
+        return counts;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.statements++;
+        }
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.entityLoads++;
+        }
+        return false;
+    }
+
+    public static class Counts {
+        private int statements;
+        private int entityLoads;
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public int getEntityLoads() {
+            return entityLoads;
+        }
+    }
+}
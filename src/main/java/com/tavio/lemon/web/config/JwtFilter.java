@@ -1,30 +1,77 @@
 package com.tavio.lemon.web.config;
 
 
+import com.tavio.lemon.domain.service.SessionRevocationRegistry;
+import com.tavio.lemon.domain.service.TokenVersionRegistry;
+import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.sse.SseTicketRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
+    // EventSource del navegador no puede mandar headers: en este endpoint se acepta un ticket
+    // de un solo uso por query (ver SseTicketRegistry). El access token nunca va en la URL.
+    static final String EVENTS_PATH = "/tasks/events";
+    static final String TICKET_PARAM = "ticket";
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenVersionRegistry tokenVersions;
+
+    @Autowired
+    private SessionRevocationRegistry sessions;
+
+    @Autowired
+    private SseTicketRegistry sseTickets;
+
+    // Cupo por IP de tokens inválidos: se consulta antes de verificar la firma
+    @Autowired
+    private RateLimitFilter rateLimit;
+
+    // true: el principal se arma con los claims del token, sin consultar usuarios
+    @Value("${security.jwt.stateless:true}")
+    private boolean stateless;
+
+    // Tiempos del filtro por fase: verificación del token, carga del usuario
+    // (o chequeo de versión en modo stateless) y total
+    private Timer parseTimer;
+    private Timer userLookupTimer;
+    private Timer versionCheckTimer;
+    private Timer totalTimer;
+
+    @Autowired
+    public void setMeterRegistry(MeterRegistry registry) {
+        this.parseTimer = phaseTimer(registry, "parse");
+        this.userLookupTimer = phaseTimer(registry, "user_lookup");
+        this.versionCheckTimer = phaseTimer(registry, "version_check");
+        this.totalTimer = phaseTimer(registry, "total");
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -36,37 +83,137 @@ public class JwtFilter extends OncePerRequestFilter {
             return;
         }
 
-        String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String username = null;
+        String token = resolveToken(request);
+        if (token == null && isEventsRequest(request)) {
+            authenticateTicket(request);
+            chain.doFilter(request, response);
+            return;
+        }
 
-        // Extraer token Bearer
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            if (jwtUtil.validateToken(token)) {
-                username = jwtUtil.getUsernameFromToken(token);
+        long start = System.nanoTime();
+        try {
+            // Verificar el token una sola vez. Un token en caché ya pasó la firma; si no lo está,
+            // antes de verificarla (ES256 ronda los 600 µs y los tokens inválidos no se cachean)
+            // se consulta el cupo de tokens inválidos de la IP
+            Claims cached = token != null ? jwtUtil.getCachedClaims(token) : null;
+            if (token != null && cached == null && rateLimit.rejectInvalidTokenSource(request, response)) {
+                return;
             }
+            authenticate(request, token, cached);
+        } finally {
+            totalTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    private void authenticate(HttpServletRequest request, String token, Claims cached) {
+        if (token == null) {
+            return;
+        }
+
+        Claims claims = cached;
+        if (claims == null) {
+            long start = System.nanoTime();
+            claims = verify(request, token);
+            parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (claims == null) {
+            return;
+        }
+        // Si ya hay autenticación en contexto
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            return;
+        }
+
+        // Sesión cerrada (logout, reúso del refresh token): sus access tokens dejan de valer.
+        // Casi siempre lo resuelve el filtro de Bloom, sin locks ni base.
+        Long sessionId = claims.get(JwtUtil.CLAIM_SESSION_ID, Long.class);
+        if (sessionId != null && sessions.isRevoked(sessionId)) {
+            return;
         }
 
-        // Si tenemos username y no hay ya autenticación en contexto
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            // Validar de nuevo por seguridad
-            if (jwtUtil.validateToken(token)) {
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
-                authToken.setDetails(new WebAuthenticationDetailsSource()
-                        .buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+        UserDetailsImpl userDetails = stateless ? jwtUtil.toPrincipal(claims) : null;
+        if (userDetails != null) {
+            // Modo stateless: id y rol salen del token; de la versión se encarga la tabla en memoria
+            long start = System.nanoTime();
+            boolean current = tokenVersions.isCurrent(userDetails.getId(), userDetails.getTokenVersion());
+            versionCheckTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!current) {
+                return;
+            }
+        } else {
+            long start = System.nanoTime();
+            try {
+                userDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(claims.getSubject());
+            } finally {
+                userLookupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            Integer version = claims.get(JwtUtil.CLAIM_TOKEN_VERSION, Integer.class);
+            if (version != null && version < userDetails.getTokenVersion()) {
+                return;
             }
         }
 
-        chain.doFilter(request, response);
+        setAuthentication(request, userDetails);
+    }
+
+    private Claims verify(HttpServletRequest request, String token) {
+        try {
+            return jwtUtil.verifyClaims(token);
+        } catch (ExpiredJwtException e) {
+            // Vencer es lo normal con access tokens cortos: no cuenta como token inválido
+            return null;
+        } catch (JwtException | IllegalArgumentException e) {
+            rateLimit.recordInvalidToken(request);
+            return null;
+        }
+    }
+
+    private void authenticateTicket(HttpServletRequest request) {
+        String ticket = request.getParameter(TICKET_PARAM);
+        UserDetailsImpl userDetails = ticket != null ? sseTickets.consume(ticket) : null;
+        if (userDetails == null) {
+            return;
+        }
+        // Un cambio de password o de rol entre la emisión y el uso también invalida el ticket
+        if (!tokenVersions.isCurrent(userDetails.getId(), userDetails.getTokenVersion())) {
+            return;
+        }
+        setAuthentication(request, userDetails);
+    }
+
+    private static void setAuthentication(HttpServletRequest request, UserDetailsImpl userDetails) {
+        UsernamePasswordAuthenticationToken authToken =
+                new UsernamePasswordAuthenticationToken(
+                        userDetails,
+                        null,
+                        userDetails.getAuthorities()
+                );
+        authToken.setDetails(new WebAuthenticationDetailsSource()
+                .buildDetails(request));
+
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
+
+    private static boolean isEventsRequest(HttpServletRequest request) {
+        return "GET".equals(request.getMethod())
+                && (request.getContextPath() + EVENTS_PATH).equals(request.getRequestURI());
+    }
+
+    private static String resolveToken(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+        return null;
+    }
+
+    private static Timer phaseTimer(MeterRegistry registry, String phase) {
+        return Timer.builder("jwt.filter")
+                .description("Tiempo de autenticación JWT por request")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,266 @@
+package com.tavio.lemon.web.config;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.RSAKey;
+import java.security.spec.KeySpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Claves para firmar y verificar JWT, identificadas por el header {@code kid}.
+ * <ul>
+ *   <li>{@code JWT_SECRET}: clave HMAC (HS256) con kid {@value #HMAC_KID}; verifica además
+ *       los tokens sin kid, emitidos antes del key-ring.</li>
+ *   <li>{@code security.jwt.keys.dir}: por cada kid, {@code <kid>.pub} (clave pública X.509
+ *       en PEM, EC o RSA) y opcionalmente {@code <kid>.key} (privada PKCS#8 en PEM). Un nodo
+ *       solo con {@code .pub} verifica pero no firma.</li>
+ * </ul>
+ * Firma la clave privada de mayor kid (orden lexicográfico, p. ej. fechas {@code 2026-10});
+ * si no hay ninguna, la HMAC. El directorio se relee cada {@code security.jwt.keys.refresh}
+ * si cambió algo, así que rotar es agregar la clave nueva y, cuando vencen los tokens
+ * firmados con la anterior, borrarla; sin reiniciar.
+ */
+@Component
+public class JwtKeyRing {
+
+    public static final String HMAC_KID = "hs256";
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+    private static final String PUBLIC_SUFFIX = ".pub";
+    private static final String PRIVATE_SUFFIX = ".key";
+
+    /** Una clave del ring. {@code signingKey} es null si este nodo no tiene la privada. */
+    public record KeyEntry(String kid, SignatureAlgorithm algorithm, Key signingKey, Key verificationKey) {
+    }
+
+    // Estado inmutable: se publica entero en cada recarga
+    private record Snapshot(Map<String, KeyEntry> keys, KeyEntry signer, String fingerprint) {
+    }
+
+    private final KeyEntry hmac;
+    private final Path dir;
+    private final List<Runnable> removalListeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public JwtKeyRing(@Value("${JWT_SECRET:}") String secret,
+                      @Value("${security.jwt.keys.dir:}") String dir) {
+        if (secret == null || secret.isEmpty()) {
+            this.hmac = null;
+        } else {
+            Key key = Keys.hmacShaKeyFor(secret.getBytes());
+            this.hmac = new KeyEntry(HMAC_KID, SignatureAlgorithm.HS256, key, key);
+        }
+        this.dir = dir == null || dir.isBlank() ? null : Path.of(dir);
+        // Al arrancar, un directorio ilegible o una clave inválida son fatales
+        this.snapshot = load(fingerprint());
+        if (snapshot.keys().isEmpty()) {
+            throw new IllegalStateException("No hay claves JWT: definir JWT_SECRET o security.jwt.keys.dir");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.keys.refresh:1m}",
+            initialDelayString = "${security.jwt.keys.refresh:1m}")
+    public void reload() {
+        if (dir == null) {
+            return;
+        }
+        try {
+            String fingerprint = fingerprint();
+            Snapshot previous = snapshot;
+            if (fingerprint.equals(previous.fingerprint())) {
+                return;
+            }
+            Snapshot fresh = load(fingerprint);
+            if (fresh.keys().isEmpty()) {
+                log.error("El directorio de claves JWT quedó vacío; se mantienen las claves anteriores");
+                return;
+            }
+            snapshot = fresh;
+            log.info("Claves JWT recargadas: {}, firma con {}", fresh.keys().keySet(),
+                    fresh.signer() == null ? "ninguna" : fresh.signer().kid());
+            if (!fresh.keys().keySet().containsAll(previous.keys().keySet())) {
+                removalListeners.forEach(Runnable::run);
+            }
+        } catch (RuntimeException e) {
+            // Un archivo a medio copiar no debe dejar al nodo sin claves
+            log.error("No se pudieron recargar las claves JWT; se mantienen las anteriores", e);
+        }
+    }
+
+    /** Clave con la que este nodo firma. */
+    public KeyEntry signingKey() {
+        KeyEntry signer = snapshot.signer();
+        if (signer == null) {
+            throw new IllegalStateException("Este nodo no tiene una clave privada para firmar tokens");
+        }
+        return signer;
+    }
+
+    /** Clave para verificar un token con ese kid (null = token anterior al key-ring), o null si no existe. */
+    public KeyEntry verificationKey(String kid) {
+        return snapshot.keys().get(kid == null ? HMAC_KID : kid);
+    }
+
+    /** Se ejecuta cuando una recarga quita claves: lo verificado con ellas deja de ser válido. */
+    public void onKeysRemoved(Runnable listener) {
+        removalListeners.add(listener);
+    }
+
+    private Snapshot load(String fingerprint) {
+        Map<String, KeyEntry> keys = new HashMap<>();
+        KeyEntry signer = null;
+        if (hmac != null) {
+            keys.put(HMAC_KID, hmac);
+        }
+        for (Map.Entry<String, KeyEntry> entry : readDir().entrySet()) {
+            keys.put(entry.getKey(), entry.getValue());
+            // readDir devuelve los kids ordenados: gana el último con privada
+            if (entry.getValue().signingKey() != null) {
+                signer = entry.getValue();
+            }
+        }
+        if (signer == null) {
+            signer = hmac;
+        }
+        return new Snapshot(Map.copyOf(keys), signer, fingerprint);
+    }
+
+    private TreeMap<String, KeyEntry> readDir() {
+        TreeMap<String, KeyEntry> entries = new TreeMap<>();
+        if (dir == null) {
+            return entries;
+        }
+        for (Path file : list()) {
+            String name = file.getFileName().toString();
+            if (!name.endsWith(PUBLIC_SUFFIX)) {
+                continue;
+            }
+            String kid = name.substring(0, name.length() - PUBLIC_SUFFIX.length());
+            if (HMAC_KID.equals(kid)) {
+                throw new IllegalStateException("El kid " + HMAC_KID + " está reservado para JWT_SECRET");
+            }
+            PublicKey publicKey = (PublicKey) readKey(file, new X509EncodedKeySpec(pem(file)));
+            SignatureAlgorithm algorithm = algorithmFor(kid, publicKey);
+            if (algorithm == null) {
+                continue;
+            }
+            Path privateFile = dir.resolve(kid + PRIVATE_SUFFIX);
+            PrivateKey privateKey = null;
+            if (Files.exists(privateFile)) {
+                privateKey = (PrivateKey) readKey(privateFile, new PKCS8EncodedKeySpec(pem(privateFile)));
+                checkPair(kid, algorithm, privateKey, publicKey);
+            }
+            entries.put(kid, new KeyEntry(kid, algorithm, privateKey, publicKey));
+        }
+        return entries;
+    }
+
+    // Nombre, tamaño y fecha de cada archivo: si no cambia, no hace falta releer
+    private String fingerprint() {
+        if (dir == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Path file : list()) {
+            try {
+                sb.append(file.getFileName()).append(':')
+                        .append(Files.size(file)).append(':')
+                        .append(Files.getLastModifiedTime(file).toMillis()).append(';');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return sb.toString();
+    }
+
+    private List<Path> list() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(Files::isRegularFile).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer " + dir, e);
+        }
+    }
+
+    private static SignatureAlgorithm algorithmFor(String kid, PublicKey key) {
+        if (key instanceof RSAKey) {
+            return SignatureAlgorithm.RS256;
+        }
+        if (key instanceof ECKey ec) {
+            int bits = ec.getParams().getCurve().getField().getFieldSize();
+            return switch (bits) {
+                case 256 -> SignatureAlgorithm.ES256;
+                case 384 -> SignatureAlgorithm.ES384;
+                case 521 -> SignatureAlgorithm.ES512;
+                default -> throw new IllegalStateException("Curva no soportada para " + kid + ": " + bits + " bits");
+            };
+        }
+        // EdDSA (Ed25519) recién la soporta jjwt 0.12
+        log.warn("Clave {} ignorada: algoritmo {} no soportado", kid, key.getAlgorithm());
+        return null;
+    }
+
+    // Una privada que no corresponde a su .pub firmaría tokens que nadie puede verificar
+    private static void checkPair(String kid, SignatureAlgorithm algorithm, PrivateKey privateKey, PublicKey publicKey) {
+        String probe = Jwts.builder().setSubject(kid).signWith(privateKey, algorithm).compact();
+        try {
+            Jwts.parserBuilder().setSigningKey(publicKey).build().parseClaimsJws(probe);
+        } catch (JwtException e) {
+            throw new IllegalStateException("La clave privada de " + kid + " no corresponde a su clave pública", e);
+        }
+    }
+
+    private static Key readKey(Path file, KeySpec spec) {
+        for (String algorithm : new String[]{"EC", "RSA", "Ed25519"}) {
+            try {
+                KeyFactory factory = KeyFactory.getInstance(algorithm);
+                return spec instanceof X509EncodedKeySpec
+                        ? factory.generatePublic(spec)
+                        : factory.generatePrivate(spec);
+            } catch (GeneralSecurityException e) {
+                // Probar el siguiente algoritmo
+            }
+        }
+        throw new IllegalStateException("Clave inválida o de tipo no soportado: " + file);
+    }
+
+    private static byte[] pem(Path file) {
+        try {
+            String content = Files.readString(file, StandardCharsets.US_ASCII);
+            String base64 = content.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "");
+            return Base64.getMimeDecoder().decode(base64);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer " + file, e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("PEM inválido: " + file, e);
+        }
+    }
+}
@@ -1,57 +1,236 @@
 package com.tavio.lemon.web.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.tavio.lemon.security.UserDetailsImpl;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
-    private final long jwtExpirationMs = 24 * 60 * 60 * 1000;
-    private final Key secretKey;
+    // Claims para autenticar sin ir a la base (ver JwtFilter)
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+    // Sesión de refresh que emitió el token (ver SessionRevocationRegistry)
+    public static final String CLAIM_SESSION_ID = "sid";
 
-    public JwtUtil(@Value("${JWT_SECRET}") String jwtSecret) {
-        this.secretKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    public static final Duration DEFAULT_ACCESS_TTL = Duration.ofMinutes(15);
+
+    private final long jwtExpirationMs;
+    private final JwtKeyRing keyRing;
+    private final JwtParser parser;
+
+    // Claims ya verificados, indexados por el hash SHA-256 del token.
+    // Cada entrada expira junto con el `exp` del propio token.
+    private final Cache<String, Claims> verifiedTokens;
+    private final boolean cacheEnabled;
+
+    /** Solo HMAC con el secreto dado (tests y benchmarks). */
+    public JwtUtil(String jwtSecret, long cacheMaxSize) {
+        this(new JwtKeyRing(jwtSecret, null), cacheMaxSize, DEFAULT_ACCESS_TTL);
+    }
+
+    @Autowired
+    public JwtUtil(JwtKeyRing keyRing,
+                   @Value("${jwt.cache.max-size:10000}") long cacheMaxSize,
+                   @Value("${security.jwt.access-ttl:15m}") Duration accessTtl) {
+        this.keyRing = keyRing;
+        this.jwtExpirationMs = accessTtl.toMillis();
+        // JwtParser es inmutable y thread-safe: se construye una sola vez y la clave
+        // de cada token se resuelve por kid contra las claves ya decodificadas del ring
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new KidResolver(keyRing))
+                .build();
+        // jwt.cache.max-size=0 desactiva la caché (cada llamada verifica la firma)
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        this.cacheEnabled = cacheMaxSize > 0;
+        keyRing.onKeysRemoved(verifiedTokens::invalidateAll);
     }
 
     public String generateToken(UserDetailsImpl userDetails) {
+        return generateToken(userDetails, null);
+    }
+
+    /** Access token de una sesión de refresh: revocar la sesión lo invalida antes de que venza. */
+    public String generateToken(UserDetailsImpl userDetails, Long sessionId) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + jwtExpirationMs);
 
-        return Jwts.builder()
+        String role = userDetails.getAuthorities().iterator().next().getAuthority().replace("ROLE_", "");
+        JwtKeyRing.KeyEntry key = keyRing.signingKey();
+        JwtBuilder builder = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, key.kid())
                 .setSubject(userDetails.getUsername())
+                .claim(CLAIM_USER_ID, userDetails.getId())
+                .claim(CLAIM_ROLE, role)
+                .claim(CLAIM_TOKEN_VERSION, userDetails.getTokenVersion());
+        if (sessionId != null) {
+            builder.claim(CLAIM_SESSION_ID, sessionId);
+        }
+        return builder
                 .setIssuedAt(now)
                 .setExpiration(exp)
-                .signWith(secretKey, SignatureAlgorithm.HS256)
+                .signWith(key.signingKey(), key.algorithm())
                 .compact();
     }
 
+    /**
+     * Principal a partir de los claims de un token ya verificado, o null si el token
+     * no los trae (emitido antes de que existieran).
+     */
+    public UserDetailsImpl toPrincipal(Claims claims) {
+        Long userId = claims.get(CLAIM_USER_ID, Long.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        Integer version = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        if (userId == null || role == null || version == null) {
+            return null;
+        }
+        return UserDetailsImpl.fromToken(userId, claims.getSubject(), role, version);
+    }
+
+    /** Duración de los access tokens, en segundos. */
+    public long getExpiresInSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(jwtExpirationMs);
+    }
+
     public String getUsernameFromToken(String token) {
         return parseClaims(token).getSubject();
     }
 
     public boolean validateToken(String token) {
+        return getValidClaims(token) != null;
+    }
+
+    /**
+     * Claims de un token que ya pasó la verificación y sigue vigente, o null si no está en caché.
+     * No verifica nada: sirve para saber si validar el token va a costar una firma.
+     */
+    public Claims getCachedClaims(String token) {
+        if (!cacheEnabled || token == null || token.isBlank()) {
+            return null;
+        }
+        return verifiedTokens.getIfPresent(hash(token));
+    }
+
+    /**
+     * Devuelve los claims de un token válido, o null si el token es inválido o expiró.
+     * Solo verifica la firma la primera vez que ve un token; después lo sirve desde caché.
+     */
+    public Claims getValidClaims(String token) {
         try {
-            parseClaims(token);
-            return true;
+            return parseClaims(token);
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
         }
     }
 
+    public long getCacheHits() {
+        return verifiedTokens.stats().hitCount();
+    }
+
+    public long getCacheMisses() {
+        return verifiedTokens.stats().missCount();
+    }
+
+    /**
+     * Como {@link #getValidClaims} pero distingue el motivo: {@link ExpiredJwtException} si venció,
+     * otra {@link JwtException} o IllegalArgumentException si es inválido.
+     */
+    public Claims verifyClaims(String token) {
+        return parseClaims(token);
+    }
+
     private Claims parseClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("Token vacío");
+        }
+        if (!cacheEnabled) {
+            return parser.parseClaimsJws(token).getBody();
+        }
+        String key = hash(token);
+        Claims cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(key, claims);
+        }
+        return claims;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    // Rechaza kids desconocidos y tokens cuyo alg no es el de la clave (p. ej. HS256 con una clave pública)
+    private static class KidResolver extends SigningKeyResolverAdapter {
+        private final JwtKeyRing keyRing;
+
+        KidResolver(JwtKeyRing keyRing) {
+            this.keyRing = keyRing;
+        }
+
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            JwtKeyRing.KeyEntry key = keyRing.verificationKey(header.getKeyId());
+            if (key == null) {
+                throw new UnsupportedJwtException("Clave de firma desconocida: " + header.getKeyId());
+            }
+            if (!key.algorithm().getValue().equals(header.getAlgorithm())) {
+                throw new UnsupportedJwtException("Algoritmo " + header.getAlgorithm() + " no corresponde a la clave " + key.kid());
+            }
+            return key.verificationKey();
+        }
+    }
+
+    private static class TokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
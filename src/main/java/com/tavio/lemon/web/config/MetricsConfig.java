@@ -0,0 +1,65 @@
+package com.tavio.lemon.web.config;
+
+import com.tavio.lemon.domain.service.UserSecurityService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Métricas propias expuestas en /actuator/prometheus, además de las que Spring Boot
+ * ya publica solo (http.server.requests, hikaricp.*, hibernate.*, jvm.*).
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Aciertos y fallos de las cachés en memoria de claims JWT y de principals,
+     * con los mismos nombres y tags que usa Micrometer para el resto de las cachés.
+     */
+    @Bean
+    public MeterBinder authCacheMetrics(JwtUtil jwtUtil, UserSecurityService userSecurityService) {
+        return registry -> {
+            cacheGets(registry, "jwt.claims", "hit", jwtUtil, JwtUtil::getCacheHits);
+            cacheGets(registry, "jwt.claims", "miss", jwtUtil, JwtUtil::getCacheMisses);
+            cacheGets(registry, "security.principals", "hit", userSecurityService, UserSecurityService::getCacheHits);
+            cacheGets(registry, "security.principals", "miss", userSecurityService, UserSecurityService::getCacheMisses);
+        };
+    }
+
+    /**
+     * Estadísticas de cada región de la caché de segundo nivel (ver HibernateCacheConfig).
+     */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> {
+            for (String name : hibernateCacheManager.getCacheNames()) {
+                JCacheMetrics.monitor(registry, hibernateCacheManager.getCache(name));
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateRequestCounter() {
+        HibernateRequestCounter counter = new HibernateRequestCounter();
+        return props -> {
+            props.put("hibernate.session_factory.statement_inspector", counter);
+            props.put("hibernate.session_factory.interceptor", counter);
+        };
+    }
+
+    private static <T> void cacheGets(MeterRegistry registry, String cache, String result,
+                                      T source, ToDoubleFunction<T> count) {
+        FunctionCounter.builder("cache.gets", source, count)
+                .tag("cache", cache)
+                .tag("result", result)
+                .description("Accesos a la caché")
+                .register(registry);
+    }
+}
@@ -0,0 +1,15 @@
+package com.tavio.lemon.web.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Auditoría de Spring Data (@CreatedDate / @LastModifiedDate en las entidades)
+ * y tareas programadas de mantenimiento (@Scheduled).
+ */
+@Configuration
+@EnableJpaAuditing
+@EnableScheduling
+public class PersistenceConfig {
+}
@@ -0,0 +1,227 @@
+package com.tavio.lemon.web.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tavio.lemon.security.UserDetailsImpl;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket por cliente, dentro de la cadena de Spring Security después de JwtFilter.
+ * <ul>
+ *   <li>{@code /auth/login} y {@code /auth/register}: por IP (pagan BCrypt). Refresh y
+ *       logout no: van con el resto.</li>
+ *   <li>Resto: por id de usuario si hay token, o por IP si no; con límites separados
+ *       para lecturas (GET/HEAD) y escrituras.</li>
+ *   <li>Tokens que no pasan la verificación, por IP: los cuenta JwtFilter, que antes de verificar
+ *       una firma consulta {@link #rejectInvalidTokenSource}. Un cliente que manda tokens falsos
+ *       deja de costar una verificación por request sin esperar a que este filtro lo vea. Los
+ *       vencidos no cuentan, y un token ya verificado (en caché) o los endpoints públicos de
+ *       {@code /auth} nunca se frenan: detrás de un NAT, los clientes legítimos de la misma IP
+ *       no se bloquean entre sí.</li>
+ * </ul>
+ * Cada límite se configura como {@code capacidad/período}, p. ej. {@code 10/1m}: ráfagas de
+ * hasta 10 requests y 10 por minuto sostenidas. Al rechazar responde 429 con Retry-After.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final Set<String> CREDENTIAL_PATHS = Set.of("/auth/login", "/auth/register");
+    // Públicos en SecurityConfig: no autentican con el Bearer, así que un token viejo que el
+    // cliente siga mandando (p. ej. el access token vencido al refrescar) no tiene que frenarlos
+    private static final Set<String> PUBLIC_AUTH_PATHS =
+            Set.of("/auth/login", "/auth/register", "/auth/refresh", "/auth/logout");
+
+    private final boolean enabled;
+    private final Limit auth;
+    private final Limit write;
+    private final Limit read;
+    private final Limit invalidToken;
+
+    @Autowired
+    public RateLimitFilter(@Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.auth:10/1m}") String auth,
+                           @Value("${rate-limit.write:100/10s}") String write,
+                           @Value("${rate-limit.read:300/10s}") String read,
+                           @Value("${rate-limit.invalid-token:30/1m}") String invalidToken,
+                           @Value("${rate-limit.max-keys:100000}") long maxKeys) {
+        this.enabled = enabled;
+        this.auth = Limit.parse("auth", auth, maxKeys);
+        this.write = Limit.parse("write", write, maxKeys);
+        this.read = Limit.parse("read", read, maxKeys);
+        this.invalidToken = Limit.parse("invalid_token", invalidToken, maxKeys);
+    }
+
+    /**
+     * Lo llama JwtFilter antes de verificar un token. Si la IP agotó su cupo de tokens inválidos
+     * responde 429 y devuelve true: la request termina ahí, sin pagar la verificación de la firma.
+     * Solo consulta el bucket; lo que gasta cupo es {@link #recordInvalidToken}.
+     */
+    public boolean rejectInvalidTokenSource(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (!enabled || PUBLIC_AUTH_PATHS.contains(path(request))) {
+            return false;
+        }
+        long waitNanos = invalidToken.waitFor(request.getRemoteAddr(), System.nanoTime());
+        if (waitNanos > 0) {
+            reject(response, invalidToken, waitNanos);
+            return true;
+        }
+        return false;
+    }
+
+    /** Un token de esta IP no pasó la verificación (firma o formato; vencer no cuenta). */
+    public void recordInvalidToken(HttpServletRequest request) {
+        if (enabled && !PUBLIC_AUTH_PATHS.contains(path(request))) {
+            invalidToken.tryAcquire(request.getRemoteAddr(), System.nanoTime());
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if (!enabled || "OPTIONS".equals(method)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Limit limit;
+        Object key;
+        if (CREDENTIAL_PATHS.contains(path(request))) {
+            limit = auth;
+            key = request.getRemoteAddr();
+        } else {
+            limit = "GET".equals(method) || "HEAD".equals(method) ? read : write;
+            key = clientKey(request);
+        }
+
+        long waitNanos = limit.tryAcquire(key, System.nanoTime());
+        if (waitNanos > 0) {
+            reject(response, limit, waitNanos);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Limit limit : new Limit[]{auth, write, read, invalidToken}) {
+            FunctionCounter.builder("http.server.requests.rate_limited", limit.rejected, LongAdder::sum)
+                    .description("Requests rechazadas con 429 por el rate limit")
+                    .tag("rule", limit.name)
+                    .register(registry);
+        }
+    }
+
+    private static void reject(HttpServletResponse response, Limit limit, long waitNanos) throws IOException {
+        limit.rejected.increment();
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        // Sin sendError: evita el dispatch a /error y que la respuesta cambie de status
+        response.getWriter().write("Demasiadas solicitudes");
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    // Id de usuario si JwtFilter autenticó la request; si no, la IP
+    private static Object clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return request.getRemoteAddr();
+        }
+        if (authentication.getPrincipal() instanceof UserDetailsImpl user) {
+            return user.getId();
+        }
+        return "user:" + authentication.getName();
+    }
+
+    /**
+     * Un token bucket por clave, implementado como GCRA: el estado es un único instante
+     * (cuándo vuelve a estar lleno el bucket) y cada request es un CAS, sin locks.
+     */
+    static final class Limit {
+        private final String name;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Cache<Object, AtomicLong> buckets;
+        private final LongAdder rejected = new LongAdder();
+
+        Limit(String name, int capacity, Duration period, long maxKeys) {
+            if (capacity < 1 || period.isNegative() || period.isZero()) {
+                throw new IllegalArgumentException("Límite inválido para " + name + ": " + capacity + "/" + period);
+            }
+            this.name = name;
+            this.burstNanos = period.toNanos();
+            this.intervalNanos = burstNanos / capacity;
+            // Una clave sin requests durante un período tiene el bucket lleno: se puede olvidar
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(period)
+                    .build();
+        }
+
+        static Limit parse(String name, String spec, long maxKeys) {
+            int slash = spec.indexOf('/');
+            if (slash < 0) {
+                throw new IllegalArgumentException("rate-limit." + name + " debe tener la forma capacidad/período: " + spec);
+            }
+            int capacity = Integer.parseInt(spec.substring(0, slash).strip());
+            Duration period = DurationStyle.detectAndParse(spec.substring(slash + 1).strip());
+            return new Limit(name, capacity, period, maxKeys);
+        }
+
+        /** Devuelve 0 si hay un token disponible, o cuántos nanos faltan para el próximo. */
+        long tryAcquire(Object key, long now) {
+            AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(now));
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long wait = next - now - burstNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        /** Como {@link #tryAcquire} pero sin gastar: 0 si quedaría un token, o cuántos nanos faltan. */
+        long waitFor(Object key, long now) {
+            AtomicLong fullAt = buckets.getIfPresent(key);
+            if (fullAt == null) {
+                return 0;
+            }
+            return Math.max(0, Math.max(fullAt.get(), now) + intervalNanos - now - burstNanos);
+        }
+    }
+}
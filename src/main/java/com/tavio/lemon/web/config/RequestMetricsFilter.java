@@ -0,0 +1,52 @@
+package com.tavio.lemon.web.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Publica cuántas sentencias SQL y cuántas entidades cargó cada request
+ * (ver HibernateRequestCounter). Un N+1 se ve como un salto en los percentiles altos.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private final DistributionSummary statements;
+    private final DistributionSummary entityLoads;
+
+    public RequestMetricsFilter(MeterRegistry registry) {
+        this.statements = DistributionSummary.builder("hibernate.request.statements")
+                .description("Sentencias SQL ejecutadas por request")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.entityLoads = DistributionSummary.builder("hibernate.request.entity.loads")
+                .description("Entidades cargadas por request")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain)
+            throws ServletException, IOException {
+        HibernateRequestCounter.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            HibernateRequestCounter.Counts counts = HibernateRequestCounter.end();
+            statements.record(counts.getStatements());
+            entityLoads.record(counts.getEntityLoads());
+        }
+    }
+}
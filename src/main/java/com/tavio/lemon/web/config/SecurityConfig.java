@@ -1,5 +1,8 @@
 package com.tavio.lemon.web.config;
 
+import com.tavio.lemon.security.BoundedPasswordEncoder;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -30,9 +33,11 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtFilter jwtFilter;
+    private final RateLimitFilter rateLimitFilter;
 
-    public SecurityConfig(JwtFilter jwtFilter) {
+    public SecurityConfig(JwtFilter jwtFilter, RateLimitFilter rateLimitFilter) {
         this.jwtFilter = jwtFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
@@ -48,21 +53,38 @@ public class SecurityConfig {
                 )
 
                 .authorizeHttpRequests(auth -> auth
+                        // El dispatch ASYNC de /tasks/events ya pasó por el JwtFilter en la request original
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
-                        .requestMatchers("/auth/register", "/auth/login").permitAll()
+                        .requestMatchers("/auth/register", "/auth/login", "/auth/refresh", "/auth/logout").permitAll()
 //                        .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        // Scrape de Prometheus sin token: restringir por red/ingress en producción
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
                 )
 
-                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+                // Después de JwtFilter: necesita saber de qué usuario es la request. Los tokens
+                // inválidos se limitan por IP dentro de JwtFilter, antes de verificar la firma
+                .addFilterAfter(rateLimitFilter, JwtFilter.class);
 
         return http.build();
     }
 
+    /**
+     * BCrypt con costo configurable, ejecutado en un pool acotado (ver BoundedPasswordEncoder).
+     * Por defecto usa la mitad de los núcleos para dejar CPU libre al resto de los endpoints.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${security.password.bcrypt-strength:10}") int strength,
+            @Value("${security.password.hashing-threads:0}") int threads,
+            @Value("${security.password.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0
+                ? threads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity);
     }
 
     @Bean
@@ -0,0 +1,62 @@
+package com.tavio.lemon.web.config;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Log de consultas lentas, en reemplazo de show-sql / org.hibernate.SQL=DEBUG.
+ * Se engancha a las estadísticas de Hibernate (hibernate.generate_statistics), que ya miden
+ * cada consulta HQL/JPQL: las que superan el umbral se loguean con texto, duración y filas.
+ * sample-rate (0..1) acota el volumen si la base entera se pone lenta.
+ */
+@Component
+public class SlowQueryLog implements HibernatePropertiesCustomizer, StatisticsFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private final long thresholdMs;
+    private final double sampleRate;
+
+    public SlowQueryLog(@Value("${persistence.slow-query.threshold:200ms}") Duration threshold,
+                        @Value("${persistence.slow-query.sample-rate:1.0}") double sampleRate) {
+        this.thresholdMs = threshold.toMillis();
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void customize(Map<String, Object> props) {
+        props.put("hibernate.stats.factory", this);
+    }
+
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        return new StatisticsImpl(sessionFactory) {
+            @Override
+            public void queryExecuted(String query, int rows, long timeMs) {
+                super.queryExecuted(query, rows, timeMs);
+                if (timeMs >= thresholdMs && sampled()) {
+                    log.atWarn()
+                            .addKeyValue("query", query)
+                            .addKeyValue("durationMs", timeMs)
+                            .addKeyValue("rows", rows)
+                            .log("Consulta lenta ({} ms, {} filas): {}", timeMs, rows, query);
+                }
+            }
+        };
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
@@ -2,22 +2,27 @@ package com.tavio.lemon.web.controller;
 
 
 import com.tavio.lemon.domain.service.AuthService;
+import com.tavio.lemon.security.PasswordHashingRejectedException;
 import com.tavio.lemon.web.dto.AuthResponse;
 import com.tavio.lemon.web.dto.LoginRequest;
+import com.tavio.lemon.web.dto.RefreshRequest;
 import com.tavio.lemon.web.dto.RegisterRequest;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
-@Tag(name = "Autenticación", description = "Endpoints para registro y login de usuarios")
+@Tag(name = "Autenticación", description = "Endpoints para registro, login, refresh y logout de usuarios")
 @RestController
 @RequestMapping(value = "/auth", produces = MediaType.APPLICATION_JSON_VALUE)
 public class AuthController {
@@ -52,7 +57,8 @@ public class AuthController {
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Login exitoso, devuelve token"),
-            @ApiResponse(responseCode = "401", description = "Credenciales incorrectas")
+            @ApiResponse(responseCode = "401", description = "Credenciales incorrectas"),
+            @ApiResponse(responseCode = "503", description = "Demasiados logins en curso; reintentar")
     })
     @PostMapping(
             path        = "/login",
@@ -64,14 +70,53 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary     = "Renovar el access token",
+            description = "Cambia un refresh token por un JWT nuevo y el refresh token siguiente. "
+                    + "Cada refresh token se puede usar una sola vez: reusarlo cierra la sesión."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Tokens renovados"),
+            @ApiResponse(responseCode = "401", description = "Refresh token inválido, vencido, revocado o ya usado")
+    })
+    @PostMapping(
+            path        = "/refresh",
+            consumes    = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<AuthResponse> refresh(
+            @RequestBody @Validated RefreshRequest request) {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
+
+    @Operation(
+            summary     = "Logout",
+            description = "Cierra la sesión del refresh token; sus access tokens dejan de valer."
+    )
+    @ApiResponse(responseCode = "204", description = "Sesión cerrada (también si ya lo estaba)")
+    @PostMapping(
+            path        = "/logout",
+            consumes    = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<Void> logout(
+            @RequestBody @Validated RefreshRequest request) {
+        authService.logout(request);
+        return ResponseEntity.noContent().build();
+    }
+
 
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Void> handleIllegalArg(IllegalArgumentException ex) {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
     }
-    @ExceptionHandler(BadCredentialsException.class)
-    public ResponseEntity<Void> handleBadCreds(BadCredentialsException ex) {
+    @ExceptionHandler({BadCredentialsException.class, DisabledException.class})
+    public ResponseEntity<Void> handleBadCreds(AuthenticationException ex) {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<Void> handleHashingRejected(PasswordHashingRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
 }
\ No newline at end of file
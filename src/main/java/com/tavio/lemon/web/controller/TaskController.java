@@ -1,26 +1,47 @@
 package com.tavio.lemon.web.controller;
 
+import com.tavio.lemon.domain.repository.TaskCursor;
+import com.tavio.lemon.domain.repository.TaskFilter;
 import com.tavio.lemon.domain.service.TaskService;
+import com.tavio.lemon.domain.service.TaskSyncService;
 import com.tavio.lemon.domain.service.UserService;
 import com.tavio.lemon.entity.TaskEntity;
 import com.tavio.lemon.entity.UserEntity;
 import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.dto.TaskBatchOperation;
+import com.tavio.lemon.web.dto.TaskBatchResult;
+import com.tavio.lemon.web.dto.SseTicketDto;
+import com.tavio.lemon.web.dto.TaskChangesDto;
+import com.tavio.lemon.web.dto.TaskCompletionRequest;
 import com.tavio.lemon.web.dto.TaskDto;
+import com.tavio.lemon.web.dto.TaskStatsDto;
 import com.tavio.lemon.web.mapper.TaskMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import com.tavio.lemon.web.export.TaskExportWriter;
+import com.tavio.lemon.web.sse.SseTicketRegistry;
+import com.tavio.lemon.web.sse.TaskEventHub;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpStatus.*;
 
@@ -29,45 +50,231 @@ import static org.springframework.http.HttpStatus.*;
 @RequestMapping("/tasks")
 public class TaskController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String NEXT_PAGE_HEADER = "X-Next-Page";
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int MAX_BATCH_SIZE = 500;
+    static final int DEFAULT_SEARCH_SIZE = 20;
+    static final int MAX_SEARCH_SIZE = 100;
+    // Paginado por offset: más allá de esto conviene refinar la búsqueda
+    static final int MAX_SEARCH_RESULTS = 1000;
+    static final int MAX_QUERY_LENGTH = 200;
+
     private final TaskService taskService;
+    private final TaskSyncService taskSyncService;
+    private final TaskEventHub taskEventHub;
+    private final SseTicketRegistry sseTickets;
     private final UserService userService;
 
     @Autowired
     public TaskController(TaskService taskService,
+                          TaskSyncService taskSyncService,
+                          TaskEventHub taskEventHub,
+                          SseTicketRegistry sseTickets,
                           UserService userService) {
         this.taskService = taskService;
+        this.taskSyncService = taskSyncService;
+        this.taskEventHub = taskEventHub;
+        this.sseTickets = sseTickets;
         this.userService = userService;
     }
 
-    @Operation(summary = "Listar todas las tareas del usuario")
+    @Operation(summary = "Listar las tareas del usuario",
+            description = "Paginado por cursor. Si hay más resultados, el header "
+                    + NEXT_CURSOR_HEADER + " trae el cursor de la página siguiente.")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Listado obtenido correctamente")
+            @ApiResponse(responseCode = "200", description = "Listado obtenido correctamente"),
+            @ApiResponse(responseCode = "304", description = "Sin cambios desde el ETag enviado en If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Cursor o filtros inválidos")
     })
     @GetMapping
-    public ResponseEntity<List<TaskDto>> listTasks(Authentication auth) {
+    public ResponseEntity<List<TaskDto>> listTasks(@ParameterObject TaskFilter filter,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                                   Authentication auth,
+                                                   WebRequest request) {
+        Long userId = ((UserDetailsImpl) auth.getPrincipal()).getId();
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(BAD_REQUEST, "size debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+        TaskCursor after;
+        try {
+            after = cursor != null ? TaskCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        }
+        // 304 sin consultar tasks ni serializar; checkNotModified además deja el ETag en la respuesta
+        if (request.checkNotModified(tasksEtag(userId, null))) {
+            return null;
+        }
+
+        // Se pide un elemento de más para saber si existe una página siguiente
+        List<TaskDto> dtos = taskService.getDtoPageByUser(userId, filter, after, size + 1);
+        boolean hasMore = dtos.size() > size;
+        if (hasMore) {
+            dtos = dtos.subList(0, size);
+        }
+
+        ResponseEntity.BodyBuilder resp = ResponseEntity.ok();
+        if (hasMore) {
+            TaskDto last = dtos.get(dtos.size() - 1);
+            resp.header(NEXT_CURSOR_HEADER, new TaskCursor(last.getCreatedAt(), last.getId()).encode());
+        }
+        return resp.body(dtos);
+    }
+
+    @Operation(summary = "Buscar en las tareas del usuario",
+            description = "Busca palabras en título y descripción, ordenando por relevancia. "
+                    + "Paginado por número de página; si hay más resultados, el header "
+                    + NEXT_PAGE_HEADER + " trae la página siguiente.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resultados de la búsqueda"),
+            @ApiResponse(responseCode = "400", description = "Búsqueda o paginado inválidos")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<TaskDto>> searchTasks(@RequestParam String q,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(defaultValue = "" + DEFAULT_SEARCH_SIZE) int size,
+                                                     Authentication auth) {
+        Long userId = ((UserDetailsImpl) auth.getPrincipal()).getId();
+        String query = q.strip();
+        if (query.isEmpty() || query.length() > MAX_QUERY_LENGTH) {
+            throw new ResponseStatusException(BAD_REQUEST, "q debe tener entre 1 y " + MAX_QUERY_LENGTH + " caracteres");
+        }
+        if (size < 1 || size > MAX_SEARCH_SIZE) {
+            throw new ResponseStatusException(BAD_REQUEST, "size debe estar entre 1 y " + MAX_SEARCH_SIZE);
+        }
+        if (page < 0 || (long) page * size + size > MAX_SEARCH_RESULTS) {
+            throw new ResponseStatusException(BAD_REQUEST, "Solo se pueden recorrer los primeros " + MAX_SEARCH_RESULTS + " resultados");
+        }
+        int offset = page * size;
+
+        List<TaskDto> dtos = taskService.searchByUser(userId, query, offset, size + 1);
+        ResponseEntity.BodyBuilder resp = ResponseEntity.ok();
+        if (dtos.size() > size) {
+            dtos = dtos.subList(0, size);
+            if (offset + 2 * size <= MAX_SEARCH_RESULTS) {
+                resp.header(NEXT_PAGE_HEADER, String.valueOf(page + 1));
+            }
+        }
+        return resp.body(dtos);
+    }
+
+    @Operation(summary = "Cambios en las tareas del usuario desde un cursor",
+            description = "Sin since devuelve todas las tareas. La respuesta trae las tareas creadas o "
+                    + "modificadas, los ids borrados y el cursor next para el próximo pedido; "
+                    + "si hasMore es true quedan cambios por traer.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Cambios obtenidos correctamente"),
+            @ApiResponse(responseCode = "400", description = "Cursor o límite inválidos"),
+            @ApiResponse(responseCode = "410", description = "Cursor vencido: volver a sincronizar sin since")
+    })
+    @GetMapping("/changes")
+    public TaskChangesDto getChanges(@RequestParam(required = false) String since,
+                                     @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                     Authentication auth) {
+        Long userId = ((UserDetailsImpl) auth.getPrincipal()).getId();
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(BAD_REQUEST, "limit debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+        TaskCursor from;
+        try {
+            from = since != null ? TaskCursor.decode(since) : null;
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        }
+        return taskSyncService.getChanges(userId, from, limit);
+    }
+
+    @Operation(summary = "Resumen de las tareas del usuario",
+            description = "Total, completadas, vencidas (abiertas con vencimiento anterior a hoy) y "
+                    + "del día (abiertas que vencen hoy). Sale de contadores por usuario, sin recorrer las tareas.")
+    @ApiResponse(responseCode = "200", description = "Resumen obtenido correctamente")
+    @GetMapping("/stats")
+    public TaskStatsDto getStats(Authentication auth) {
+        Long userId = ((UserDetailsImpl) auth.getPrincipal()).getId();
+        return taskService.getStats(userId);
+    }
+
+    @Operation(summary = "Suscribirse a los cambios de tareas del usuario",
+            description = "Server-Sent Events: un evento \"task\" por cada tarea creada (CREATED), modificada "
+                    + "(UPDATED) o borrada (DELETED). El token va en Authorization o, para EventSource del "
+                    + "navegador, se pasa un ticket de POST /tasks/events/ticket en el parámetro ticket. Al reconectar, ponerse al día con /tasks/changes.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Stream abierto"),
+            @ApiResponse(responseCode = "429", description = "Demasiadas conexiones abiertas para el usuario")
+    })
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeEvents(Authentication auth) {
         Long userId = ((UserDetailsImpl) auth.getPrincipal()).getId();
-        List<TaskDto> dtos = taskService.getAllByUser(userId).stream()
-                .map(TaskMapper::toDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        return taskEventHub.subscribe(userId);
+    }
+
+    @Operation(summary = "Pedir un ticket para abrir /tasks/events",
+            description = "Para EventSource del navegador, que no puede mandar Authorization. El ticket "
+                    + "sirve una sola vez y vence a los pocos segundos: pedir uno nuevo en cada reconexión.")
+    @ApiResponse(responseCode = "200", description = "Ticket emitido")
+    @PostMapping("/events/ticket")
+    public SseTicketDto issueEventsTicket(Authentication auth) {
+        String ticket = sseTickets.issue((UserDetailsImpl) auth.getPrincipal());
+        return new SseTicketDto(ticket, sseTickets.getTtl().toSeconds());
+    }
+
+    @Operation(summary = "Exportar las tareas del usuario",
+            description = "Streaming en NDJSON (por defecto) o CSV. Con all=true exporta las de todos "
+                    + "los usuarios; solo ADMIN.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export generado"),
+            @ApiResponse(responseCode = "400", description = "Formato no soportado"),
+            @ApiResponse(responseCode = "403", description = "all=true sin rol ADMIN")
+    })
+    @GetMapping("/export")
+    @PreAuthorize("!#all or hasRole('ADMIN')")
+    public void exportTasks(@RequestParam(defaultValue = "ndjson") String format,
+                            @RequestParam(defaultValue = "false") boolean all,
+                            Authentication auth,
+                            HttpServletResponse response) throws IOException {
+        TaskExportWriter.Format fmt;
+        try {
+            fmt = TaskExportWriter.Format.parse(format);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        }
+        Long userId = all ? null : ((UserDetailsImpl) auth.getPrincipal()).getId();
+
+        response.setContentType(fmt.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"tasks." + fmt.getExtension() + "\"");
+        try (TaskExportWriter writer = TaskExportWriter.create(fmt, response.getOutputStream())) {
+            taskService.exportByUser(userId, writer);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
     }
 
     @Operation(summary = "Obtener una tarea por ID")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Tarea encontrada"),
+            @ApiResponse(responseCode = "304", description = "Sin cambios desde el ETag enviado en If-None-Match"),
             @ApiResponse(responseCode = "403", description = "No autorizado para ver esta tarea"),
             @ApiResponse(responseCode = "404", description = "Tarea no encontrada")
     })
     @GetMapping("/{id}")
     public ResponseEntity<TaskDto> getById(@PathVariable Long id,
-                                           Authentication auth) {
+                                           Authentication auth,
+                                           WebRequest request) {
         Long userId = ((UserDetailsImpl) auth.getPrincipal()).getId();
-        TaskEntity task = taskService.getById(id)
+        if (request.checkNotModified(tasksEtag(userId, id))) {
+            return null;
+        }
+        TaskDto task = taskService.getDtoById(id)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Tarea no encontrada"));
-        if (!task.getUser().getId().equals(userId)) {
+        if (!task.getUserId().equals(userId)) {
             throw new ResponseStatusException(FORBIDDEN, "No autorizado");
         }
-        return ResponseEntity.ok(TaskMapper.toDto(task));
+        return ResponseEntity.ok(task);
     }
 
     @Operation(summary = "Crear una nueva tarea")
@@ -85,6 +292,26 @@ public class TaskController {
         return ResponseEntity.ok(TaskMapper.toDto(saved));
     }
 
+    @Operation(summary = "Aplicar un lote de operaciones sobre tareas",
+            description = "Crea, actualiza y elimina varias tareas en una sola transacción. "
+                    + "Cada operación informa su propio status (200, 204, 400, 403 o 404).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Lote procesado; ver el status de cada operación"),
+            @ApiResponse(responseCode = "400", description = "Lote vacío, demasiado grande o inválido")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<List<TaskBatchResult>> batch(@RequestBody @Valid List<TaskBatchOperation> ops,
+                                                       Authentication auth) {
+        Long userId = ((UserDetailsImpl) auth.getPrincipal()).getId();
+        if (ops.isEmpty() || ops.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(BAD_REQUEST, "El lote debe tener entre 1 y " + MAX_BATCH_SIZE + " operaciones");
+        }
+        if (ops.stream().anyMatch(op -> op == null || op.getOp() == null)) {
+            throw new ResponseStatusException(BAD_REQUEST, "Cada operación debe indicar op");
+        }
+        return ResponseEntity.ok(taskService.applyBatch(userId, ops));
+    }
+
     @Operation(summary = "Actualizar por completo una tarea existente")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Tarea actualizada correctamente"),
@@ -97,16 +324,29 @@ public class TaskController {
                                               @RequestBody @Valid TaskDto dto,
                                               Authentication auth) {
         Long userId = ((UserDetailsImpl) auth.getPrincipal()).getId();
-        TaskEntity existing = taskService.getById(id)
+        return ResponseEntity.ok(taskService.updateOwned(id, userId, dto));
+    }
+
+    @Operation(summary = "Marcar una tarea como completada o pendiente",
+            description = "El cambio se aplica de forma diferida (write-behind) y se persiste en el próximo flush.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Cambio aceptado"),
+            @ApiResponse(responseCode = "403", description = "No autorizado para modificar esta tarea"),
+            @ApiResponse(responseCode = "404", description = "Tarea no encontrada"),
+            @ApiResponse(responseCode = "400", description = "Datos inválidos")
+    })
+    @PatchMapping("/{id}/completed")
+    public ResponseEntity<Void> setCompleted(@PathVariable Long id,
+                                             @RequestBody @Valid TaskCompletionRequest body,
+                                             Authentication auth) {
+        Long userId = ((UserDetailsImpl) auth.getPrincipal()).getId();
+        Long ownerId = taskService.getOwnerId(id)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Tarea no encontrada"));
-        if (!existing.getUser().getId().equals(userId)) {
+        if (!ownerId.equals(userId)) {
             throw new ResponseStatusException(FORBIDDEN, "No autorizado");
         }
-        dto.setId(id);
-        TaskEntity toSave = TaskMapper.toEntity(dto, existing.getUser());
-        toSave.setCreatedAt(existing.getCreatedAt());
-        TaskEntity saved = taskService.save(toSave);
-        return ResponseEntity.ok(TaskMapper.toDto(saved));
+        taskService.setCompletedAsync(id, ownerId, body.getCompleted());
+        return ResponseEntity.accepted().build();
     }
 
     @Operation(summary = "Eliminar una tarea")
@@ -119,12 +359,17 @@ public class TaskController {
     public ResponseEntity<Void> deleteTask(@PathVariable Long id,
                                            Authentication auth) {
         Long userId = ((UserDetailsImpl) auth.getPrincipal()).getId();
-        TaskEntity task = taskService.getById(id)
-                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Tarea no encontrada"));
-        if (!task.getUser().getId().equals(userId)) {
-            throw new ResponseStatusException(FORBIDDEN, "No autorizado");
-        }
-        taskService.delete(id);
+        taskService.deleteOwned(id, userId);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    /**
+     * ETag fuerte a partir de la versión de las tareas del usuario, que cambia con cada escritura.
+     * Se lee antes de la consulta: si una escritura se cuela en el medio, la respuesta queda
+     * etiquetada con la versión vieja y el próximo GET la trae de nuevo, nunca al revés.
+     */
+    private String tasksEtag(Long userId, Long taskId) {
+        long version = taskService.getVersion(userId);
+        return "\"t" + userId + "-" + version + (taskId != null ? "-" + taskId : "") + "\"";
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.List;
 
 @Tag(name = "Usuarios", description = "Operaciones CRUD sobre usuarios")
@@ -37,12 +38,14 @@ public class UserController {
     }
 
     @Operation(summary = "Obtener un usuario por ID",
-            description = "El propio usuario o ADMIN pueden acceder")
+            description = "El propio usuario o ADMIN pueden acceder. Con If-None-Match responde 304 "
+                    + "si el usuario no cambió.")
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or #id == principal.id")
     public ResponseEntity<UserEntity> getById(@PathVariable Long id) {
+        // El usuario sale de la caché de segundo nivel; Spring compara el ETag y evita serializar
         return userService.getById(id)
-                .map(ResponseEntity::ok)
+                .map(user -> ResponseEntity.ok().eTag(etag(user)).body(user))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -55,14 +58,40 @@ public class UserController {
             @RequestBody @Valid UserEntity reqBody) {
         return userService.getById(id).map(existing -> {
             existing.setUsername(reqBody.getUsername());
-            if (reqBody.getPassword() != null && !reqBody.getPassword().isBlank()) {
+            boolean passwordChanged = reqBody.getPassword() != null && !reqBody.getPassword().isBlank();
+            if (passwordChanged) {
                 existing.setPassword(reqBody.getPassword());
+                // Los tokens emitidos con la contraseña anterior dejan de valer
+                existing.setTokenVersion(existing.getTokenVersion() + 1);
             }
             UserEntity saved = userService.save(existing);
+            if (passwordChanged) {
+                // Y los refresh tokens tampoco pueden emitir access tokens nuevos
+                userService.revokeSessions(id);
+            }
             return ResponseEntity.ok(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
+    @Operation(summary = "Deshabilitar usuario",
+            description = "Solo ADMIN. El usuario no puede loguearse y sus tokens y sesiones dejan de valer.")
+    @PostMapping("/{id}/disable")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserEntity> disable(@PathVariable Long id) {
+        return userService.setEnabled(id, false)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Habilitar usuario", description = "Solo ADMIN")
+    @PostMapping("/{id}/enable")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserEntity> enable(@PathVariable Long id) {
+        return userService.setEnabled(id, true)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @Operation(summary = "Eliminar usuario",
             description = "El propio usuario o ADMIN pueden eliminar")
     @DeleteMapping("/{id}")
@@ -73,4 +102,10 @@ public class UserController {
             return ResponseEntity.noContent().<Void>build();
         }).orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    // updatedAt cambia con cada modificación (auditoría JPA); antes de la primera, vale createdAt
+    private static String etag(UserEntity user) {
+        Instant version = user.getUpdatedAt() != null ? user.getUpdatedAt() : user.getCreatedAt();
+        return "\"u" + user.getId() + "-" + (version != null ? version.getEpochSecond() + "." + version.getNano() : "0") + "\"";
+    }
+}
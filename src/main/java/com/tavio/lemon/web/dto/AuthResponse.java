@@ -14,4 +14,7 @@ public class AuthResponse {
     private Long   userId;
     private String username;
     private String role;
+    // Segundos de vida del access token; antes de que venza se renueva con refreshToken
+    private long   expiresIn;
+    private String refreshToken;
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.tavio.lemon.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SseTicketDto {
+    // Un solo uso, en GET /tasks/events?ticket=
+    private String ticket;
+    // Segundos de validez
+    private long expiresIn;
+}
@@ -0,0 +1,23 @@
+package com.tavio.lemon.web.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskBatchOperation {
+
+    public enum Type { CREATE, UPDATE, DELETE }
+
+    @NotNull
+    private Type op;
+    // Requerido para UPDATE y DELETE
+    private Long id;
+    // Requerido para CREATE y UPDATE
+    private TaskDto task;
+}
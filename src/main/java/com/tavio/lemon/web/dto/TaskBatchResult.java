@@ -0,0 +1,21 @@
+package com.tavio.lemon.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TaskBatchResult {
+    private int index;
+    private TaskBatchOperation.Type op;
+    private Long id;
+    private int status;
+    private String error;
+    private TaskDto task;
+}
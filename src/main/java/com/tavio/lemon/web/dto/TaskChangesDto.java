@@ -0,0 +1,23 @@
+package com.tavio.lemon.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskChangesDto {
+    // Tareas creadas o modificadas, ordenadas por (updatedAt, id)
+    private List<TaskDto> updated;
+    // Ids de tareas borradas
+    private List<Long> deleted;
+    // Cursor a enviar como since en el próximo pedido
+    private String next;
+    // true si quedaron cambios sin devolver: pedir de nuevo enseguida con next
+    private boolean hasMore;
+}
@@ -0,0 +1,16 @@
+package com.tavio.lemon.web.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskCompletionRequest {
+    @NotNull
+    private Boolean completed;
+}
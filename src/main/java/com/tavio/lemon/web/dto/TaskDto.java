@@ -22,6 +22,8 @@ public class TaskDto {
     private boolean completed;
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private LocalDateTime createdAt;
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime updatedAt;
     private LocalDateTime dueDate;
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private Long userId;
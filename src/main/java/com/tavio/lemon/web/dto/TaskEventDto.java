@@ -0,0 +1,18 @@
+package com.tavio.lemon.web.dto;
+
+import com.tavio.lemon.domain.service.TaskChangeEvent;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskEventDto {
+    private TaskChangeEvent.Type type;
+    private Long id;
+    // Estado nuevo de la tarea; null en DELETED y en cambios de completed (pedirla con GET /tasks/{id})
+    private TaskDto task;
+}
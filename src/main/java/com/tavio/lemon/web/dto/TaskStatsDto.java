@@ -0,0 +1,19 @@
+package com.tavio.lemon.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskStatsDto {
+    private long total;
+    private long completed;
+    // Abiertas con vencimiento anterior a hoy
+    private long overdue;
+    // Abiertas que vencen hoy, a cualquier hora
+    private long dueToday;
+}
@@ -0,0 +1,151 @@
+package com.tavio.lemon.web.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tavio.lemon.web.dto.TaskDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Escribe tareas una por una sobre un OutputStream, sin acumularlas en memoria.
+ * A diferencia de TaskDto serializado por Jackson, el export incluye userId.
+ */
+public abstract class TaskExportWriter implements Consumer<TaskDto>, Closeable {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @throws IllegalArgumentException si el formato no es soportado.
+         */
+        public static Format parse(String value) {
+            for (Format f : values()) {
+                if (f.extension.equalsIgnoreCase(value)) {
+                    return f;
+                }
+            }
+            throw new IllegalArgumentException("Formato no soportado: " + value);
+        }
+    }
+
+    public static TaskExportWriter create(Format format, OutputStream out) throws IOException {
+        return switch (format) {
+            case NDJSON -> new Ndjson(out);
+            case CSV -> new Csv(out);
+        };
+    }
+
+    @Override
+    public void accept(TaskDto task) {
+        try {
+            write(task);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected abstract void write(TaskDto task) throws IOException;
+
+    private static final class Ndjson extends TaskExportWriter {
+        private static final JsonFactory FACTORY = new JsonFactory();
+        private final JsonGenerator gen;
+
+        Ndjson(OutputStream out) throws IOException {
+            this.gen = FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            this.gen.setRootValueSeparator(null);
+        }
+
+        @Override
+        protected void write(TaskDto t) throws IOException {
+            gen.writeStartObject();
+            gen.writeNumberField("id", t.getId());
+            gen.writeStringField("title", t.getTitle());
+            gen.writeStringField("description", t.getDescription());
+            gen.writeBooleanField("completed", t.isCompleted());
+            gen.writeStringField("createdAt", str(t.getCreatedAt()));
+            gen.writeStringField("dueDate", str(t.getDueDate()));
+            gen.writeNumberField("userId", t.getUserId());
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            gen.close();
+        }
+    }
+
+    private static final class Csv extends TaskExportWriter {
+        private final Writer out;
+
+        Csv(OutputStream out) throws IOException {
+            this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            this.out.write("id,title,description,completed,createdAt,dueDate,userId\n");
+        }
+
+        @Override
+        protected void write(TaskDto t) throws IOException {
+            out.write(String.valueOf(t.getId()));
+            out.write(',');
+            out.write(escape(t.getTitle()));
+            out.write(',');
+            out.write(escape(t.getDescription()));
+            out.write(',');
+            out.write(String.valueOf(t.isCompleted()));
+            out.write(',');
+            out.write(Objects.toString(t.getCreatedAt(), ""));
+            out.write(',');
+            out.write(Objects.toString(t.getDueDate(), ""));
+            out.write(',');
+            out.write(String.valueOf(t.getUserId()));
+            out.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static String str(LocalDateTime value) {
+        return value != null ? value.toString() : null;
+    }
+}
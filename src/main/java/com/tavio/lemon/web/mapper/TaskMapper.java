@@ -12,6 +12,7 @@ public class TaskMapper {
                 .description(e.getDescription())
                 .completed(e.isCompleted())
                 .createdAt(e.getCreatedAt())
+                .updatedAt(e.getUpdatedAt())
                 .dueDate(e.getDueDate())
                 .userId(e.getUser().getId())
                 .build();
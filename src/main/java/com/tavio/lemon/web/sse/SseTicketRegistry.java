@@ -0,0 +1,58 @@
+package com.tavio.lemon.web.sse;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tavio.lemon.security.UserDetailsImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Tickets para abrir GET /tasks/events desde EventSource, que no puede mandar headers.
+ * <p>
+ * El access token nunca va en la URL (queda en logs de acceso, proxies e historial):
+ * el cliente pide un ticket con su token en Authorization y lo usa una sola vez, dentro
+ * de unos segundos. Los tickets viven solo en memoria del nodo que los emitió.
+ */
+@Component
+public class SseTicketRegistry {
+
+    private static final int TICKET_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Cache<String, UserDetailsImpl> tickets;
+    private final Duration ttl;
+
+    @Autowired
+    public SseTicketRegistry(@Value("${tasks.events.ticket-ttl:30s}") Duration ttl,
+                             @Value("${tasks.events.ticket-max:10000}") long maxSize) {
+        this.ttl = ttl;
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public String issue(UserDetailsImpl principal) {
+        byte[] bytes = new byte[TICKET_BYTES];
+        random.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(ticket, principal);
+        return ticket;
+    }
+
+    /**
+     * Devuelve el principal del ticket y lo invalida; null si no existe, venció o ya se usó.
+     */
+    public UserDetailsImpl consume(String ticket) {
+        return tickets.asMap().remove(ticket);
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+}
@@ -0,0 +1,220 @@
+package com.tavio.lemon.web.sse;
+
+import com.tavio.lemon.domain.service.TaskChangeEvent;
+import com.tavio.lemon.web.dto.TaskEventDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * Reparte los cambios de tareas a las conexiones SSE abiertas de cada usuario.
+ * <p>
+ * Una conexión ociosa no ocupa hilos: la request queda en modo async de Tomcat y solo
+ * se escribe cuando hay algo para mandar. Cada conexión tiene un buffer acotado que se
+ * vacía desde un virtual thread; quien publica (el hilo que hizo commit) solo encola y
+ * nunca espera a la red. Si el buffer se llena, el cliente no está leyendo: se cierra la
+ * conexión y, al reconectar, se pone al día con GET /tasks/changes.
+ */
+@Component
+public class TaskEventHub implements MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskEventHub.class);
+    private static final long RECONNECT_MS = 3000;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeats;
+    private final int bufferSize;
+    private final int maxPerUser;
+    private final long timeoutMs;
+
+    @Autowired
+    public TaskEventHub(@Value("${tasks.events.buffer-size:64}") int bufferSize,
+                        @Value("${tasks.events.max-connections-per-user:5}") int maxPerUser,
+                        @Value("${tasks.events.timeout:30m}") Duration timeout,
+                        @Value("${tasks.events.heartbeat:15s}") Duration heartbeat) {
+        this.bufferSize = bufferSize;
+        this.maxPerUser = maxPerUser;
+        this.timeoutMs = timeout.toMillis();
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "task-events-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalMs = heartbeat.toMillis();
+        heartbeats.scheduleWithFixedDelay(this::sendHeartbeats, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Abre una conexión para {@code userId}.
+     * @throws ResponseStatusException 429 si el usuario ya tiene el máximo de conexiones abiertas.
+     */
+    public SseEmitter subscribe(Long userId) {
+        Subscriber sub = new Subscriber(userId, createEmitter(timeoutMs));
+        AtomicBoolean accepted = new AtomicBoolean();
+        subscribers.compute(userId, (id, subs) -> {
+            if (subs == null) {
+                subs = ConcurrentHashMap.newKeySet();
+            }
+            if (subs.size() < maxPerUser) {
+                accepted.set(subs.add(sub));
+            }
+            return subs;
+        });
+        if (!accepted.get()) {
+            throw new ResponseStatusException(TOO_MANY_REQUESTS, "Demasiadas conexiones abiertas");
+        }
+        sub.emitter.onCompletion(() -> unregister(sub));
+        sub.emitter.onTimeout(() -> unregister(sub));
+        sub.emitter.onError(ex -> unregister(sub));
+        // Primer envío: los proxies ven la respuesta enseguida y el cliente sabe cuánto esperar para reconectar
+        sub.offer(SseEmitter.event().comment("conectado").reconnectTime(RECONNECT_MS));
+        return sub.emitter;
+    }
+
+    /** Después del commit: un cliente nunca recibe un cambio que después se revierte. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChange(TaskChangeEvent change) {
+        Set<Subscriber> subs = subscribers.get(change.getUserId());
+        if (subs == null) {
+            return;
+        }
+        TaskEventDto dto = TaskEventDto.builder()
+                .type(change.getType())
+                .id(change.getTaskId())
+                .task(change.getTask())
+                .build();
+        for (Subscriber sub : subs) {
+            sub.offer(SseEmitter.event().name("task").data(dto, MediaType.APPLICATION_JSON));
+        }
+        published.increment();
+    }
+
+    public int getConnectionCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tasks.events.connections", this, TaskEventHub::getConnectionCount)
+                .description("Conexiones SSE abiertas")
+                .register(registry);
+        FunctionCounter.builder("tasks.events.published", published, LongAdder::sum)
+                .description("Cambios de tareas enviados a usuarios con conexiones abiertas")
+                .register(registry);
+        FunctionCounter.builder("tasks.events.dropped", dropped, LongAdder::sum)
+                .description("Conexiones cerradas por no leer a tiempo")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        subscribers.values().forEach(subs -> subs.forEach(sub -> sub.emitter.complete()));
+        subscribers.clear();
+        writers.shutdown();
+    }
+
+    // Punto de extensión para tests
+    protected SseEmitter createEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private void sendHeartbeats() {
+        // Un comentario cada tanto mantiene viva la conexión en proxies y balanceadores con timeout de inactividad
+        subscribers.values().forEach(subs -> subs.forEach(sub -> sub.offer(SseEmitter.event().comment("ping"))));
+    }
+
+    private void unregister(Subscriber sub) {
+        sub.closed = true;
+        subscribers.computeIfPresent(sub.userId, (id, subs) -> {
+            subs.remove(sub);
+            return subs.isEmpty() ? null : subs;
+        });
+    }
+
+    private void drop(Subscriber sub) {
+        if (sub.closed) {
+            return;
+        }
+        unregister(sub);
+        dropped.increment();
+        log.info("Conexión SSE del usuario {} cerrada: buffer lleno", sub.userId);
+        // complete() espera a que termine un send en curso: no bloquear a quien publica
+        writers.execute(sub.emitter::complete);
+    }
+
+    private final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                drop(this);
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        // Un solo drain por conexión a la vez: los eventos salen en orden
+        private void drain() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = buffer.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException ex) {
+                        // Cliente desconectado: el contenedor avisa por onError, acá solo dejamos de escribir
+                        unregister(this);
+                        buffer.clear();
+                    }
+                }
+                draining.set(false);
+                // Si algo llegó justo después del último poll, alguien tiene que mandarlo
+            } while (!closed && !buffer.isEmpty() && draining.compareAndSet(false, true));
+        }
+    }
+}
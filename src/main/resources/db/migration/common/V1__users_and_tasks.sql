@@ -0,0 +1,30 @@
+-- Esquema inicial, equivalente al que generaba ddl-auto=update.
+-- SQL común a PostgreSQL y H2; lo específico de cada motor va en db/migration/{vendor}.
+
+CREATE TABLE users (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username    VARCHAR(50)  NOT NULL,
+    password    VARCHAR(255) NOT NULL,
+    role        VARCHAR(20)  NOT NULL,
+    enabled     BOOLEAN      NOT NULL DEFAULT TRUE,
+    created_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at  TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT uk_users_username UNIQUE (username)
+);
+
+-- allocationSize = 50 en TaskEntity
+CREATE SEQUENCE tasks_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE tasks (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    user_id     BIGINT       NOT NULL,
+    title       VARCHAR(255) NOT NULL,
+    description TEXT,
+    completed   BOOLEAN      NOT NULL DEFAULT FALSE,
+    created_at  TIMESTAMP(6) NOT NULL,
+    due_date    TIMESTAMP(6),
+    CONSTRAINT fk_tasks_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+-- GET /tasks (keyset por created_at, id) y findByUserId
+CREATE INDEX idx_tasks_user_created ON tasks (user_id, created_at, id);
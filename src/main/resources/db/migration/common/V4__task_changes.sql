@@ -0,0 +1,17 @@
+-- Sincronización incremental (GET /tasks/changes): última modificación de cada tarea
+-- y lápidas de las tareas borradas.
+
+ALTER TABLE tasks ADD COLUMN updated_at TIMESTAMP(6);
+UPDATE tasks SET updated_at = created_at;
+ALTER TABLE tasks ALTER COLUMN updated_at SET NOT NULL;
+
+CREATE INDEX idx_tasks_user_updated ON tasks (user_id, updated_at, id);
+
+-- Sin FK a tasks (la tarea ya no existe) ni a users (sobreviven a un borrado de usuario)
+CREATE TABLE task_tombstones (
+    task_id     BIGINT       NOT NULL PRIMARY KEY,
+    user_id     BIGINT       NOT NULL,
+    deleted_at  TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_task_tombstones_user_deleted ON task_tombstones (user_id, deleted_at);
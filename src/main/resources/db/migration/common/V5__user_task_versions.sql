@@ -0,0 +1,9 @@
+-- Versión de la colección de tareas de cada usuario: se incrementa en cada escritura
+-- sobre sus tareas y es la base de los ETag de GET /tasks y GET /tasks/{id}.
+CREATE TABLE user_task_versions (
+    user_id  BIGINT NOT NULL PRIMARY KEY,
+    version  BIGINT NOT NULL,
+    CONSTRAINT fk_user_task_versions_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+INSERT INTO user_task_versions (user_id, version) SELECT id, 0 FROM users;
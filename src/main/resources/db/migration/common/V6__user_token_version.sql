@@ -0,0 +1,3 @@
+-- Versión de los tokens de cada usuario: viaja en el JWT (claim ver) y se incrementa para
+-- invalidar todos los tokens emitidos antes (cambio de contraseña, baja).
+ALTER TABLE users ADD COLUMN token_version INTEGER NOT NULL DEFAULT 0;
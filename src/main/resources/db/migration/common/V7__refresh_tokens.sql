@@ -0,0 +1,16 @@
+-- Sesiones de refresh (POST /auth/refresh). Cada fila es una sesión: su refresh token rota
+-- en cada uso y solo se guarda el hash SHA-256 del actual y del anterior (detección de reúso).
+CREATE TABLE refresh_tokens (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id        BIGINT       NOT NULL,
+    token_hash     VARCHAR(64)  NOT NULL,
+    previous_hash  VARCHAR(64),
+    created_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    expires_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    revoked_at     TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT fk_refresh_tokens_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_refresh_tokens_user ON refresh_tokens (user_id);
+-- Carga incremental de sesiones revocadas (SessionRevocationRegistry)
+CREATE INDEX idx_refresh_tokens_revoked ON refresh_tokens (revoked_at);
@@ -0,0 +1,30 @@
+-- Contadores por usuario para GET /tasks/stats, mantenidos por TaskStatsService en la misma
+-- transacción que cada escritura sobre tasks y reconciliados cada noche contra la tabla.
+
+CREATE TABLE user_task_stats (
+    user_id    BIGINT NOT NULL PRIMARY KEY,
+    total      BIGINT NOT NULL,
+    completed  BIGINT NOT NULL,
+    CONSTRAINT fk_user_task_stats_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+INSERT INTO user_task_stats (user_id, total, completed)
+SELECT u.id, COUNT(t.id), COUNT(CASE WHEN t.completed THEN 1 END)
+FROM users u LEFT JOIN tasks t ON t.user_id = u.id
+GROUP BY u.id;
+
+-- Tareas abiertas con vencimiento, por usuario y día: vencidas y del día salen de sumar
+-- unas pocas filas, sin recorrer las tareas.
+CREATE TABLE task_due_counts (
+    user_id     BIGINT NOT NULL,
+    due_day     DATE   NOT NULL,
+    open_count  BIGINT NOT NULL,
+    CONSTRAINT pk_task_due_counts PRIMARY KEY (user_id, due_day),
+    CONSTRAINT fk_task_due_counts_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+INSERT INTO task_due_counts (user_id, due_day, open_count)
+SELECT user_id, CAST(due_date AS DATE), COUNT(*)
+FROM tasks
+WHERE completed = FALSE AND due_date IS NOT NULL
+GROUP BY user_id, CAST(due_date AS DATE);
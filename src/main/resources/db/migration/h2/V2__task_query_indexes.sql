@@ -0,0 +1,6 @@
+-- Equivalente H2 de postgresql/V2: H2 no soporta INCLUDE ni índices parciales,
+-- así que se crean como índices compuestos comunes.
+
+CREATE INDEX idx_tasks_user_completed_due ON tasks (user_id, completed, due_date);
+
+CREATE INDEX idx_tasks_open_due ON tasks (user_id, due_date);
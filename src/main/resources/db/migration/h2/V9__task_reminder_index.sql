@@ -0,0 +1,2 @@
+-- Equivalente H2 de postgresql/V9: sin índices parciales, completed va adelante.
+CREATE INDEX idx_tasks_open_due_date ON tasks (completed, due_date, id);
@@ -0,0 +1,8 @@
+-- Bases creadas con ddl-auto=update (baseline en V1) tienen tasks.id como IDENTITY y nunca
+-- corrieron V1, así que no existe tasks_seq. Se crea acá y se alinea con los ids existentes.
+CREATE SEQUENCE IF NOT EXISTS tasks_seq INCREMENT BY 50;
+
+-- Con allocationSize = 50 Hibernate usa los ids (valor - 49 .. valor): el próximo nextval tiene
+-- que quedar al menos 50 por encima de MAX(id). Nunca se retrocede una secuencia ya adelantada.
+SELECT setval('tasks_seq', (SELECT MAX(id) FROM tasks) + 50)
+WHERE (SELECT MAX(id) FROM tasks) + 50 > (SELECT last_value FROM tasks_seq);
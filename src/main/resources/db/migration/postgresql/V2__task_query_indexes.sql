@@ -0,0 +1,16 @@
+-- Índices para los filtros de GET /tasks (completed, dueFrom/dueTo).
+-- IF NOT EXISTS: en bases creadas antes por ddl-auto=update (baseline en V1) algunos ya existen.
+
+-- Filtro por completed + rango de due_date. INCLUDE deja title y created_at en el índice
+-- para que contar o listar títulos pendientes pueda resolverse con un index-only scan.
+DROP INDEX IF EXISTS idx_tasks_user_completed_due;
+CREATE INDEX idx_tasks_user_completed_due
+    ON tasks (user_id, completed, due_date) INCLUDE (title, created_at);
+
+-- Solo tareas abiertas: suelen ser una fracción chica de la tabla y son las que
+-- se consultan por vencimiento.
+CREATE INDEX IF NOT EXISTS idx_tasks_open_due
+    ON tasks (user_id, due_date) WHERE completed = FALSE;
+
+-- Por si la base viene de ddl-auto=update y el índice de listado no se había creado
+CREATE INDEX IF NOT EXISTS idx_tasks_user_created ON tasks (user_id, created_at, id);
@@ -0,0 +1,10 @@
+-- Búsqueda full-text en título (peso A) y descripción (peso B) para GET /tasks/search.
+-- Columna generada: Postgres la recalcula en cada INSERT/UPDATE, sin triggers ni código en la app.
+ALTER TABLE tasks
+    ADD COLUMN IF NOT EXISTS search_vector tsvector
+        GENERATED ALWAYS AS (
+            setweight(to_tsvector('spanish', coalesce(title, '')), 'A') ||
+            setweight(to_tsvector('spanish', coalesce(description, '')), 'B')
+        ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_tasks_search ON tasks USING GIN (search_vector);
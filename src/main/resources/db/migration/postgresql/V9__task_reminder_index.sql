@@ -0,0 +1,4 @@
+-- Recordatorios (TaskReminderScheduler): tareas abiertas de todos los usuarios por vencimiento,
+-- leídas por ventanas de due_date. Parcial: las completadas no se recorren nunca.
+CREATE INDEX IF NOT EXISTS idx_tasks_open_due_date
+    ON tasks (due_date, id) WHERE completed = FALSE;
@@ -0,0 +1,39 @@
+package com.tavio.lemon.config;
+
+import com.tavio.lemon.web.config.ConcurrencyLimitFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    @Test
+    void doFilter_sinLugar_responde503ConRetryAfter() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ofMillis(10));
+        MockHttpServletResponse inner = new MockHttpServletResponse();
+
+        // La primera request ocupa el único lugar y, mientras tanto, llega una segunda
+        filter.doFilter(new MockHttpServletRequest("GET", "/tasks"), new MockHttpServletResponse(),
+                (req, res) -> filter.doFilter(new MockHttpServletRequest("GET", "/tasks"), inner,
+                        (req2, res2) -> fail("No debería ejecutarse")));
+
+        assertEquals(503, inner.getStatus());
+        assertEquals("1", inner.getHeader("Retry-After"));
+        assertEquals(1, filter.availablePermits());
+    }
+
+    @Test
+    void doFilter_conLugar_liberaElPermisoAlTerminar() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(2, Duration.ofMillis(10));
+        MockHttpServletResponse resp = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/tasks"), resp, (req, res) -> { });
+
+        assertEquals(200, resp.getStatus());
+        assertEquals(2, filter.availablePermits());
+    }
+}
@@ -0,0 +1,106 @@
+package com.tavio.lemon.config;
+
+import com.tavio.lemon.domain.repository.RefreshTokenRepository;
+import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.domain.service.SessionRevocationRegistry;
+import com.tavio.lemon.domain.service.TokenVersionRegistry;
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.config.JwtFilter;
+import com.tavio.lemon.web.config.JwtKeyRing;
+import com.tavio.lemon.web.config.JwtUtil;
+import com.tavio.lemon.web.config.RateLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtFilterTest {
+
+    private static final String SECRET = "esta-es-una-clave-de-prueba-para-los-tests";
+
+    private final FilterChain chain = (req, res) -> { };
+    private final UserDetailsImpl principal = UserDetailsImpl.build(UserEntity.builder()
+            .id(7L)
+            .username("pepito")
+            .password("pwd")
+            .role(Role.USER)
+            .enabled(true)
+            .build());
+
+    private JwtUtil jwtUtil;
+    private JwtFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 100);
+        TokenVersionRegistry tokenVersions = new TokenVersionRegistry(Mockito.mock(UserRepository.class));
+        tokenVersions.update(UserEntity.builder().id(7L).enabled(true).build());
+
+        filter = new JwtFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "tokenVersions", tokenVersions);
+        ReflectionTestUtils.setField(filter, "sessions",
+                new SessionRevocationRegistry(Mockito.mock(RefreshTokenRepository.class), 1000));
+        ReflectionTestUtils.setField(filter, "stateless", true);
+        ReflectionTestUtils.setField(filter, "rateLimit",
+                new RateLimitFilter(true, "100/1s", "100/1s", "100/1s", "2/1m", 1000));
+        filter.setMeterRegistry(new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ipSinCupoDeTokensInvalidos_igualAceptaLosTokensYaVerificados() throws Exception {
+        String valid = jwtUtil.generateToken(principal);
+        assertEquals(200, filter(valid, "/tasks").getStatus());
+        SecurityContextHolder.clearContext();
+
+        filter("falso.token.x", "/tasks");
+        filter("falso.token.y", "/tasks");
+
+        assertEquals(429, filter("falso.token.z", "/tasks").getStatus());
+        MockHttpServletResponse cached = filter(valid, "/tasks");
+        assertEquals(200, cached.getStatus());
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        // Los endpoints públicos de /auth no autentican con el Bearer: no se frenan
+        assertEquals(200, filter("falso.token.z", "/auth/refresh").getStatus());
+    }
+
+    @Test
+    void doFilter_tokensVencidos_noGastanElCupoDeTokensInvalidos() throws Exception {
+        JwtUtil expiring = new JwtUtil(new JwtKeyRing(SECRET, null), 100, Duration.ofSeconds(-1));
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletResponse response = filter(expiring.generateToken(principal), "/tasks");
+            assertEquals(200, response.getStatus());
+            assertNull(SecurityContextHolder.getContext().getAuthentication());
+        }
+
+        filter("falso.token.x", "/tasks");
+        filter("falso.token.y", "/tasks");
+        assertEquals(429, filter("falso.token.z", "/tasks").getStatus());
+    }
+
+    private MockHttpServletResponse filter(String token, String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr("10.0.0.1");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
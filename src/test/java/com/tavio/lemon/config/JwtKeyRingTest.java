@@ -0,0 +1,159 @@
+package com.tavio.lemon.config;
+
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.config.JwtKeyRing;
+import com.tavio.lemon.web.config.JwtUtil;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyRingTest {
+
+    private static final String SECRET = "esta-es-una-clave-de-prueba-para-los-tests";
+
+    @TempDir
+    Path dir;
+
+    private UserDetailsImpl principal;
+
+    @BeforeEach
+    void setUp() {
+        principal = UserDetailsImpl.build(UserEntity.builder()
+                .id(7L)
+                .username("pepito")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void generateToken_conClaveEc_firmaConElKidYUnaReplicaSoloConLaPublicaVerifica() throws Exception {
+        KeyPair pair = ecKeyPair();
+        writeKeyPair(dir, "2026-10", pair);
+        JwtUtil signer = new JwtUtil(new JwtKeyRing(SECRET, dir.toString()), 100, JwtUtil.DEFAULT_ACCESS_TTL);
+
+        String token = signer.generateToken(principal);
+
+        assertEquals("2026-10", Jwts.parserBuilder().setSigningKey(pair.getPublic()).build()
+                .parseClaimsJws(token).getHeader().getKeyId());
+        assertEquals("ES256", Jwts.parserBuilder().setSigningKey(pair.getPublic()).build()
+                .parseClaimsJws(token).getHeader().getAlgorithm());
+
+        Path replicaDir = Files.createDirectory(dir.resolve("replica"));
+        writePem(replicaDir.resolve("2026-10.pub"), "PUBLIC KEY", pair.getPublic().getEncoded());
+        JwtUtil replica = new JwtUtil(new JwtKeyRing("", replicaDir.toString()), 100, JwtUtil.DEFAULT_ACCESS_TTL);
+
+        assertEquals("pepito", replica.getUsernameFromToken(token));
+        assertThrows(IllegalStateException.class, () -> replica.generateToken(principal));
+    }
+
+    @Test
+    void reload_rotacion_firmaConLaNuevaYAlBorrarLaViejaSusTokensDejanDeValer() throws Exception {
+        writeKeyPair(dir, "2026-10", ecKeyPair());
+        JwtKeyRing ring = new JwtKeyRing(SECRET, dir.toString());
+        JwtUtil jwtUtil = new JwtUtil(ring, 100, JwtUtil.DEFAULT_ACCESS_TTL);
+        String viejo = jwtUtil.generateToken(principal);
+        assertTrue(jwtUtil.validateToken(viejo));
+
+        writeKeyPair(dir, "2026-11", rsaKeyPair());
+        ring.reload();
+        String nuevo = jwtUtil.generateToken(principal);
+
+        assertEquals("2026-11", ring.signingKey().kid());
+        assertEquals(SignatureAlgorithm.RS256, ring.signingKey().algorithm());
+        assertTrue(jwtUtil.validateToken(nuevo));
+        assertTrue(jwtUtil.validateToken(viejo));
+
+        Files.delete(dir.resolve("2026-10.pub"));
+        Files.delete(dir.resolve("2026-10.key"));
+        ring.reload();
+
+        // El token viejo estaba en la caché de claims: la baja de la clave la vacía
+        assertFalse(jwtUtil.validateToken(viejo));
+        assertTrue(jwtUtil.validateToken(nuevo));
+    }
+
+    @Test
+    void reload_conArchivoInvalido_mantieneLasClavesAnteriores() throws Exception {
+        writeKeyPair(dir, "2026-10", ecKeyPair());
+        JwtKeyRing ring = new JwtKeyRing(SECRET, dir.toString());
+
+        Files.writeString(dir.resolve("2026-11.pub"), "-----BEGIN PUBLIC KEY-----\nnoesunaclave\n-----END PUBLIC KEY-----\n");
+        ring.reload();
+
+        assertEquals("2026-10", ring.signingKey().kid());
+    }
+
+    @Test
+    void getValidClaims_tokenHmacConElKidDeUnaClavePublica_retornaNull() throws Exception {
+        KeyPair pair = ecKeyPair();
+        writeKeyPair(dir, "2026-10", pair);
+        JwtUtil jwtUtil = new JwtUtil(new JwtKeyRing(SECRET, dir.toString()), 100, JwtUtil.DEFAULT_ACCESS_TTL);
+
+        // Confusión de algoritmo: HMAC usando como secreto los bytes de la clave pública
+        Key forged = Keys.hmacShaKeyFor(pair.getPublic().getEncoded());
+        String token = Jwts.builder()
+                .setHeaderParam("kid", "2026-10")
+                .setSubject("pepito")
+                .signWith(forged, SignatureAlgorithm.HS256)
+                .compact();
+
+        assertNull(jwtUtil.getValidClaims(token));
+    }
+
+    @Test
+    void getValidClaims_tokenSinKid_seVerificaConJwtSecret() throws Exception {
+        writeKeyPair(dir, "2026-10", ecKeyPair());
+        JwtUtil jwtUtil = new JwtUtil(new JwtKeyRing(SECRET, dir.toString()), 100, JwtUtil.DEFAULT_ACCESS_TTL);
+
+        String legacy = Jwts.builder()
+                .setSubject("pepito")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertEquals("pepito", jwtUtil.getUsernameFromToken(legacy));
+    }
+
+    @Test
+    void constructor_sinClaves_falla() {
+        assertThrows(IllegalStateException.class, () -> new JwtKeyRing("", dir.toString()));
+    }
+
+    private static KeyPair ecKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    private static KeyPair rsaKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static void writeKeyPair(Path dir, String kid, KeyPair pair) throws Exception {
+        writePem(dir.resolve(kid + ".pub"), "PUBLIC KEY", pair.getPublic().getEncoded());
+        writePem(dir.resolve(kid + ".key"), "PRIVATE KEY", pair.getPrivate().getEncoded());
+    }
+
+    private static void writePem(Path file, String type, byte[] der) throws Exception {
+        String body = Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(der);
+        Files.writeString(file, "-----BEGIN " + type + "-----\n" + body + "\n-----END " + type + "-----\n");
+    }
+}
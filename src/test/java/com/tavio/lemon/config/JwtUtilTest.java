@@ -0,0 +1,70 @@
+package com.tavio.lemon.config;
+
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.config.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private JwtUtil jwtUtil;
+    private UserDetailsImpl principal;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil("esta-es-una-clave-de-prueba-para-los-tests", 100);
+        principal = UserDetailsImpl.build(UserEntity.builder()
+                .id(7L)
+                .username("pepito")
+                .password("pwd")
+                .role(Role.USER)
+                .build());
+    }
+
+    @Test
+    void getValidClaims_segundaLlamada_seSirveDesdeCache() {
+        String token = jwtUtil.generateToken(principal);
+
+        assertEquals("pepito", jwtUtil.getValidClaims(token).getSubject());
+        assertEquals("pepito", jwtUtil.getUsernameFromToken(token));
+        assertTrue(jwtUtil.validateToken(token));
+
+        assertEquals(1, jwtUtil.getCacheMisses());
+        assertEquals(2, jwtUtil.getCacheHits());
+    }
+
+    @Test
+    void toPrincipal_armaElUsuarioConLosClaimsDelToken() {
+        String token = jwtUtil.generateToken(principal);
+
+        UserDetailsImpl fromToken = jwtUtil.toPrincipal(jwtUtil.getValidClaims(token));
+
+        assertEquals(7L, fromToken.getId());
+        assertEquals("pepito", fromToken.getUsername());
+        assertEquals("ROLE_USER", fromToken.getAuthorities().iterator().next().getAuthority());
+        assertEquals(0, fromToken.getTokenVersion());
+        assertNull(fromToken.getPassword());
+    }
+
+    @Test
+    void getValidClaims_tokenAlterado_retornaNull() {
+        String token = jwtUtil.generateToken(principal);
+        String alterado = token.substring(0, token.length() - 2) + "xx";
+
+        assertNull(jwtUtil.getValidClaims(alterado));
+        assertFalse(jwtUtil.validateToken(alterado));
+        assertFalse(jwtUtil.validateToken(""));
+    }
+
+    @Test
+    void getValidClaims_tokenDeOtraClave_retornaNull() {
+        JwtUtil otro = new JwtUtil("otra-clave-de-prueba-distinta-para-tests", 100);
+        String token = otro.generateToken(principal);
+
+        assertNull(jwtUtil.getValidClaims(token));
+    }
+}
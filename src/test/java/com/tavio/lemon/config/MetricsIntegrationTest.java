@@ -0,0 +1,61 @@
+package com.tavio.lemon.config;
+
+import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.config.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Test
+    void prometheus_trasUnaRequestAutenticada_exponeMetricasDeCadaCapa() throws Exception {
+        UserEntity user = userRepo.save(UserEntity.builder()
+                .username("metrics-user")
+                .password("pwd")
+                .role(Role.USER)
+                .createdAt(Instant.now())
+                .build());
+        String token = jwtUtil.generateToken(UserDetailsImpl.build(user));
+
+        mockMvc.perform(get("/tasks").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("jwt_filter_seconds_count{phase=\"user_lookup\"}")))
+                .andExpect(content().string(containsString("service_calls_seconds_count{class=\"com.tavio.lemon.domain.service.TaskService\"")))
+                .andExpect(content().string(containsString("hibernate_request_statements_count")))
+                .andExpect(content().string(containsString("security_password_hashing_seconds_count")))
+                .andExpect(content().string(containsString("cache_gets_total{cache=\"jwt.claims\"")))
+                .andExpect(content().string(containsString("hikaricp_connections_acquire_seconds_bucket")));
+    }
+}
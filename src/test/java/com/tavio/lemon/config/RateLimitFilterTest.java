@@ -0,0 +1,112 @@
+package com.tavio.lemon.config;
+
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.config.RateLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private final FilterChain chain = (req, res) -> { };
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_authPorIp_rechazaConRetryAfterAlAgotarLaRafaga() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(true, "2/1m", "100/1s", "100/1s", "100/1s", 1000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        filter.bindTo(registry);
+
+        assertEquals(200, login(filter, "10.0.0.1").getStatus());
+        assertEquals(200, login(filter, "10.0.0.1").getStatus());
+        MockHttpServletResponse rejected = login(filter, "10.0.0.1");
+
+        assertEquals(429, rejected.getStatus());
+        // Un token cada 30 s
+        assertEquals("30", rejected.getHeader("Retry-After"));
+        assertEquals(200, login(filter, "10.0.0.2").getStatus());
+        assertEquals(1, registry.get("http.server.requests.rate_limited").tag("rule", "auth").functionCounter().count());
+    }
+
+    @Test
+    void doFilter_conUsuarioAutenticado_limitaPorIdYNoPorIp() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(true, "100/1s", "1/1m", "100/1s", "100/1s", 1000);
+
+        authenticateAs(7L);
+        assertEquals(200, request(filter, "POST", "/tasks", "10.0.0.1").getStatus());
+        assertEquals(429, request(filter, "POST", "/tasks", "10.0.0.2").getStatus());
+        // Las lecturas tienen su propio límite
+        assertEquals(200, request(filter, "GET", "/tasks", "10.0.0.1").getStatus());
+
+        authenticateAs(8L);
+        assertEquals(200, request(filter, "POST", "/tasks", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void rejectInvalidTokenSource_trasAgotarElCupoDeTokensInvalidos_respondeSinVerificar() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(true, "100/1s", "100/1s", "100/1s", "2/1m", 1000);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/tasks");
+        request.setRemoteAddr("10.0.0.1");
+
+        for (int i = 0; i < 2; i++) {
+            assertFalse(filter.rejectInvalidTokenSource(request, new MockHttpServletResponse()));
+            filter.recordInvalidToken(request);
+        }
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+
+        assertTrue(filter.rejectInvalidTokenSource(request, rejected));
+        assertEquals(429, rejected.getStatus());
+        assertEquals("30", rejected.getHeader("Retry-After"));
+        // Consultar no gasta cupo, y otra IP no se ve afectada
+        MockHttpServletRequest other = new MockHttpServletRequest("GET", "/tasks");
+        other.setRemoteAddr("10.0.0.2");
+        assertFalse(filter.rejectInvalidTokenSource(other, new MockHttpServletResponse()));
+        assertFalse(filter.rejectInvalidTokenSource(other, new MockHttpServletResponse()));
+    }
+
+    @Test
+    void doFilter_deshabilitado_noLimita() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(false, "1/1m", "1/1m", "1/1m", "100/1s", 1000);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, login(filter, "10.0.0.1").getStatus());
+        }
+    }
+
+    @Test
+    void constructor_conLimiteMalFormado_falla() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RateLimitFilter(true, "10", "1/1m", "1/1m", "100/1s", 1000));
+    }
+
+    private MockHttpServletResponse login(RateLimitFilter filter, String ip) throws Exception {
+        return request(filter, "POST", "/auth/login", ip);
+    }
+
+    private MockHttpServletResponse request(RateLimitFilter filter, String method, String uri, String ip)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static void authenticateAs(Long id) {
+        UserDetailsImpl principal = UserDetailsImpl.build(UserEntity.builder().id(id).username("u" + id).build());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+}
@@ -0,0 +1,98 @@
+package com.tavio.lemon.config;
+
+import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.domain.service.TaskCompletionWriteBehind;
+import com.tavio.lemon.domain.service.TaskService;
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.TaskEntity;
+import com.tavio.lemon.entity.UserEntity;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private CacheManager hibernateCacheManager;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private TaskRepository taskRepo;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskCompletionWriteBehind writeBehind;
+
+    private UserEntity user;
+
+    @BeforeEach
+    void setup() {
+        taskRepo.deleteAll();
+        userRepo.deleteAll();
+        emf.getCache().evictAll();
+        user = userRepo.save(UserEntity.builder()
+                .username("cacheado")
+                .password("pwd")
+                .role(Role.USER)
+                .enabled(true)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    @Test
+    void findById_quedaEnCacheYSeInvalidaAlBorrar() {
+        TaskEntity task = taskService.save(TaskEntity.builder().title("L2").user(user).build());
+        emf.getCache().evictAll();
+
+        taskService.getById(task.getId());
+        assertTrue(emf.getCache().contains(TaskEntity.class, task.getId()));
+        userRepo.findById(user.getId());
+        assertTrue(emf.getCache().contains(UserEntity.class, user.getId()));
+
+        taskService.deleteOwned(task.getId(), user.getId());
+        assertFalse(emf.getCache().contains(TaskEntity.class, task.getId()));
+    }
+
+    @Test
+    void flushDeCompletadas_soloSacaDeLaCacheLasTareasEscritas() {
+        TaskEntity escrita = taskService.save(TaskEntity.builder().title("Escrita").user(user).build());
+        TaskEntity ajena = taskService.save(TaskEntity.builder().title("Ajena al lote").user(user).build());
+        taskService.getById(escrita.getId());
+        taskService.getById(ajena.getId());
+        assertTrue(emf.getCache().contains(TaskEntity.class, ajena.getId()));
+
+        writeBehind.enqueue(escrita.getId(), user.getId(), true);
+        assertEquals(1, writeBehind.flush());
+
+        assertFalse(emf.getCache().contains(TaskEntity.class, escrita.getId()));
+        assertTrue(emf.getCache().contains(TaskEntity.class, ajena.getId()));
+        assertTrue(taskService.getById(escrita.getId()).orElseThrow().isCompleted());
+    }
+
+    @Test
+    void regiones_estanDeclaradasExplicitamente() {
+        Cache<Object, Object> tasks = hibernateCacheManager.getCache(TaskEntity.class.getName());
+        Cache<Object, Object> users = hibernateCacheManager.getCache(UserEntity.class.getName());
+        assertNotNull(tasks);
+        assertNotNull(users);
+    }
+}
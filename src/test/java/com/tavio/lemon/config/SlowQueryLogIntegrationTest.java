@@ -0,0 +1,30 @@
+package com.tavio.lemon.config;
+
+import com.tavio.lemon.domain.repository.TaskRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "persistence.slow-query.threshold=0ms")
+@ActiveProfiles("test")
+@ExtendWith(OutputCaptureExtension.class)
+class SlowQueryLogIntegrationTest {
+
+    @Autowired
+    private TaskRepository taskRepo;
+
+    @Test
+    void consultaSobreElUmbral_seLogueaConTextoYFilas(CapturedOutput output) {
+        taskRepo.findByUserId(-1L);
+
+        assertTrue(output.getOut().contains("Consulta lenta ("));
+        assertTrue(output.getOut().contains("0 filas"));
+        assertTrue(output.getOut().contains("from tasks"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.tavio.lemon.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.domain.service.RefreshTokenService;
+import com.tavio.lemon.domain.service.UserSecurityService;
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.config.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StatelessJwtIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private TaskRepository taskRepo;
+
+    @Autowired
+    private UserSecurityService userSecurityService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private RefreshTokenService refreshTokens;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Test
+    void requestAutenticada_noCargaElUsuarioYCambiarLaPasswordRevocaLosTokens() throws Exception {
+        taskRepo.deleteAll();
+        userRepo.deleteAll();
+        UserEntity user = userRepo.save(UserEntity.builder()
+                .username("stateless")
+                .password("pwd")
+                .role(Role.USER)
+                .enabled(true)
+                .createdAt(Instant.now())
+                .build());
+        String token = jwtUtil.generateToken(UserDetailsImpl.build(user));
+        long lookups = userSecurityService.getCacheHits() + userSecurityService.getCacheMisses();
+
+        mvc.perform(get("/tasks").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        assertEquals(lookups, userSecurityService.getCacheHits() + userSecurityService.getCacheMisses());
+
+        mvc.perform(put("/users/{id}", user.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"stateless\",\"password\":\"nueva\"}"))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/tasks").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+
+        UserEntity updated = userRepo.findById(user.getId()).orElseThrow();
+        String fresh = jwtUtil.generateToken(UserDetailsImpl.build(updated));
+        mvc.perform(get("/tasks").header("Authorization", "Bearer " + fresh))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void logout_invalidaLosAccessTokensDeLaSesion() throws Exception {
+        taskRepo.deleteAll();
+        userRepo.deleteAll();
+        UserEntity user = userRepo.save(UserEntity.builder()
+                .username("logout")
+                .password("pwd")
+                .role(Role.USER)
+                .createdAt(Instant.now())
+                .build());
+        RefreshTokenService.Issued session = refreshTokens.create(user.getId());
+        String token = jwtUtil.generateToken(UserDetailsImpl.build(user), session.sessionId());
+
+        mvc.perform(get("/tasks").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mvc.perform(post("/auth/logout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"" + session.token() + "\"}"))
+                .andExpect(status().isNoContent());
+
+        mvc.perform(get("/tasks").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void events_aceptaUnTicketDeUnSoloUsoYNoElAccessTokenEnLaUrl() throws Exception {
+        taskRepo.deleteAll();
+        userRepo.deleteAll();
+        UserEntity user = userRepo.save(UserEntity.builder()
+                .username("eventos")
+                .password("pwd")
+                .role(Role.USER)
+                .createdAt(Instant.now())
+                .build());
+        String token = jwtUtil.generateToken(UserDetailsImpl.build(user));
+
+        mvc.perform(get("/tasks/events").param("access_token", token))
+                .andExpect(status().isForbidden());
+
+        String ticket = issueTicket(token);
+
+        mvc.perform(get("/tasks/events").param("ticket", ticket))
+                .andExpect(request().asyncStarted());
+
+        mvc.perform(get("/tasks/events").param("ticket", ticket))
+                .andExpect(status().isForbidden());
+        // Fuera de /tasks/events el ticket no autentica
+        mvc.perform(get("/tasks").param("ticket", issueTicket(token)))
+                .andExpect(status().isForbidden());
+    }
+
+    private String issueTicket(String token) throws Exception {
+        String body = mvc.perform(post("/tasks/events/ticket").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(body).get("ticket").asText();
+    }
+}
@@ -1,11 +1,13 @@
 package com.tavio.lemon.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tavio.lemon.domain.repository.TaskRepository;
 import com.tavio.lemon.domain.repository.UserRepository;
 import com.tavio.lemon.entity.Role;
 import com.tavio.lemon.entity.UserEntity;
 import com.tavio.lemon.web.dto.AuthResponse;
 import com.tavio.lemon.web.dto.LoginRequest;
+import com.tavio.lemon.web.dto.RefreshRequest;
 import com.tavio.lemon.web.dto.RegisterRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,8 +39,12 @@ class AuthControllerIntegrationTest {
     @Autowired
     private UserRepository userRepo;
 
+    @Autowired
+    private TaskRepository taskRepo;
+
     @BeforeEach
     void setup() {
+        taskRepo.deleteAll();
         userRepo.deleteAll();
     }
 
@@ -129,4 +135,75 @@ class AuthControllerIntegrationTest {
                 )
                 .andExpect(status().isUnauthorized());
     }
+
+    @Test
+    void refresh_RotatesTokenAndReuseRevokesSession() throws Exception {
+        saveUser("sofia", "pwd123", true);
+        AuthResponse login = login("sofia", "pwd123");
+        assertThat(login.getRefreshToken()).isNotBlank();
+        assertThat(login.getExpiresIn()).isPositive();
+
+        AuthResponse refreshed = refresh(login.getRefreshToken(), 200);
+        assertThat(refreshed.getRefreshToken()).isNotEqualTo(login.getRefreshToken());
+        assertThat(refreshed.getUserId()).isEqualTo(login.getUserId());
+
+        // El token ya rotado vuelve a presentarse: se revoca la sesión y tampoco vale el nuevo
+        refresh(login.getRefreshToken(), 401);
+        refresh(refreshed.getRefreshToken(), 401);
+    }
+
+    @Test
+    void logout_RevokesRefreshToken() throws Exception {
+        saveUser("tomas", "pwd123", true);
+        AuthResponse login = login("tomas", "pwd123");
+
+        mvc.perform(post("/auth/logout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new RefreshRequest(login.getRefreshToken())))
+                )
+                .andExpect(status().isNoContent());
+
+        refresh(login.getRefreshToken(), 401);
+    }
+
+    @Test
+    void login_DisabledUser_Returns401() throws Exception {
+        saveUser("irene", "pwd123", false);
+
+        mvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new LoginRequest("irene", "pwd123")))
+                )
+                .andExpect(status().isUnauthorized());
+    }
+
+    private void saveUser(String username, String raw, boolean enabled) {
+        userRepo.save(UserEntity.builder()
+                .username(username)
+                .password(new BCryptPasswordEncoder().encode(raw))
+                .role(Role.USER)
+                .enabled(enabled)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    private AuthResponse login(String username, String raw) throws Exception {
+        String body = mvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new LoginRequest(username, raw)))
+                )
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(body, AuthResponse.class);
+    }
+
+    private AuthResponse refresh(String refreshToken, int expectedStatus) throws Exception {
+        String body = mvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new RefreshRequest(refreshToken)))
+                )
+                .andExpect(status().is(expectedStatus))
+                .andReturn().getResponse().getContentAsString();
+        return expectedStatus == 200 ? mapper.readValue(body, AuthResponse.class) : null;
+    }
 }
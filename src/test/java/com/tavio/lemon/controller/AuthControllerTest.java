@@ -5,6 +5,7 @@ import com.tavio.lemon.domain.service.AuthService;
 import com.tavio.lemon.web.controller.AuthController;
 import com.tavio.lemon.web.dto.AuthResponse;
 import com.tavio.lemon.web.dto.LoginRequest;
+import com.tavio.lemon.web.dto.RefreshRequest;
 import com.tavio.lemon.web.dto.RegisterRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -22,6 +23,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -51,7 +53,7 @@ class AuthControllerTest {
     @DisplayName("POST /auth/register → 200 + body")
     void register_Success() throws Exception {
         var req = new RegisterRequest("ana", "pass123");
-        var resp = new AuthResponse("tok123", 5L, "ana", "USER");
+        var resp = new AuthResponse("tok123", 5L, "ana", "USER", 900, "1.abc");
         when(authService.register(any(RegisterRequest.class))).thenReturn(resp);
 
         mvc.perform(post("/auth/register")
@@ -84,7 +86,7 @@ class AuthControllerTest {
     @DisplayName("POST /auth/login → 200 + body")
     void login_Success() throws Exception {
         var req = new LoginRequest("ana", "pass123");
-        var resp = new AuthResponse("jwt456", 5L, "ana", "USER");
+        var resp = new AuthResponse("jwt456", 5L, "ana", "USER", 900, "2.def");
         when(authService.login(any(LoginRequest.class))).thenReturn(resp);
 
         mvc.perform(post("/auth/login")
@@ -95,7 +97,9 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.token").value("jwt456"))
                 .andExpect(jsonPath("$.userId").value(5))
                 .andExpect(jsonPath("$.username").value("ana"))
-                .andExpect(jsonPath("$.role").value("USER"));
+                .andExpect(jsonPath("$.role").value("USER"))
+                .andExpect(jsonPath("$.expiresIn").value(900))
+                .andExpect(jsonPath("$.refreshToken").value("2.def"));
     }
 
     @Test
@@ -111,4 +115,44 @@ class AuthControllerTest {
                 )
                 .andExpect(status().isUnauthorized());
     }
+
+    @Test
+    @DisplayName("POST /auth/refresh → 200 con los tokens nuevos")
+    void refresh_Success() throws Exception {
+        var resp = new AuthResponse("jwt789", 5L, "ana", "USER", 900, "2.ghi");
+        when(authService.refresh(any(RefreshRequest.class))).thenReturn(resp);
+
+        mvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new RefreshRequest("2.def")))
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("jwt789"))
+                .andExpect(jsonPath("$.refreshToken").value("2.ghi"));
+    }
+
+    @Test
+    @DisplayName("POST /auth/refresh → 401 si el refresh token no es válido")
+    void refresh_TokenInvalido() throws Exception {
+        doThrow(new BadCredentialsException("Refresh token ya utilizado"))
+                .when(authService).refresh(any());
+
+        mvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new RefreshRequest("2.def")))
+                )
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName("POST /auth/logout → 204")
+    void logout_Success() throws Exception {
+        mvc.perform(post("/auth/logout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(new RefreshRequest("2.def")))
+                )
+                .andExpect(status().isNoContent());
+
+        verify(authService).logout(any(RefreshRequest.class));
+    }
 }
@@ -2,18 +2,32 @@ package com.tavio.lemon.controller;
 
 import com.tavio.lemon.entity.Role;
 import com.tavio.lemon.entity.TaskEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.hasSize;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tavio.lemon.domain.repository.TaskRepository;
 import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.domain.service.TaskCompletionWriteBehind;
+import com.tavio.lemon.domain.service.TaskStatsService;
 import com.tavio.lemon.entity.UserEntity;
 import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.web.dto.TaskDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,8 +37,10 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @SpringBootTest
@@ -44,6 +60,12 @@ class TaskControllerIntegrationTest {
     @Autowired
     private TaskRepository taskRepo;
 
+    @Autowired
+    private TaskCompletionWriteBehind writeBehind;
+
+    @Autowired
+    private TaskStatsService statsService;
+
     private Authentication auth;
     private UserEntity user;
 
@@ -125,4 +147,442 @@ class TaskControllerIntegrationTest {
                 .andExpect(jsonPath("$.id").value(saved.getId()))
                 .andExpect(jsonPath("$.title").value("Test X"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void listTasks_paginaPorCursorYFiltra() throws Exception {
+        LocalDateTime base = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < 3; i++) {
+            taskRepo.save(TaskEntity.builder()
+                    .title("Compra " + i)
+                    .completed(i == 1)
+                    .dueDate(base.plusDays(i))
+                    .user(user)
+                    .build());
+        }
+        taskRepo.save(TaskEntity.builder()
+                .title("Otra cosa")
+                .user(user)
+                .build());
+
+        String next = mvc.perform(get("/tasks")
+                        .param("titlePrefix", "compra")
+                        .param("size", "2")
+                        .principal(auth)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        mvc.perform(get("/tasks")
+                        .param("titlePrefix", "compra")
+                        .param("size", "2")
+                        .param("cursor", next)
+                        .principal(auth)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title").value("Compra 2"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        mvc.perform(get("/tasks")
+                        .param("completed", "false")
+                        .param("dueFrom", base.plusHours(1).toString())
+                        .principal(auth)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title").value("Compra 2"));
+    }
+
+    @Test
+    void exportTasks_ndjson_unaLineaPorTarea() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            taskRepo.save(TaskEntity.builder()
+                    .title("Export " + i)
+                    .description(i == 0 ? "con, coma" : null)
+                    .user(user)
+                    .build());
+        }
+
+        String body = mvc.perform(get("/tasks/export")
+                        .principal(auth)
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("Export 0", mapper.readTree(lines[0]).get("title").asText());
+        assertEquals(user.getId(), mapper.readTree(lines[2]).get("userId").asLong());
+
+        String csv = mvc.perform(get("/tasks/export")
+                        .param("format", "csv")
+                        .principal(auth)
+                )
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(csv.contains("\"con, coma\""));
+        assertEquals(4, csv.split("\n").length);
+    }
+
+    @Test
+    void batch_aplicaOperacionesYReportaResultadoPorItem() throws Exception {
+        UserEntity otro = userRepo.save(UserEntity.builder()
+                .username("otro")
+                .password("pwd")
+                .role(Role.USER)
+                .enabled(true)
+                .createdAt(Instant.now())
+                .build());
+        TaskEntity propia = taskRepo.save(TaskEntity.builder().title("Propia").user(user).build());
+        TaskEntity borrar = taskRepo.save(TaskEntity.builder().title("Borrar").user(user).build());
+        TaskEntity ajena = taskRepo.save(TaskEntity.builder().title("Ajena").user(otro).build());
+
+        String json = """
+            [
+              {"op":"CREATE","task":{"title":"Nueva 1"}},
+              {"op":"CREATE","task":{"title":"Nueva 2","completed":true}},
+              {"op":"UPDATE","id":%d,"task":{"title":"Propia editada","completed":true}},
+              {"op":"DELETE","id":%d},
+              {"op":"UPDATE","id":%d,"task":{"title":"Hack"}},
+              {"op":"DELETE","id":999999},
+              {"op":"CREATE","task":{"description":"sin título"}}
+            ]
+            """.formatted(propia.getId(), borrar.getId(), ajena.getId());
+
+        mvc.perform(post("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json)
+                        .principal(auth)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(7)))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].id", notNullValue()))
+                .andExpect(jsonPath("$[1].task.completed").value(true))
+                .andExpect(jsonPath("$[2].status").value(200))
+                .andExpect(jsonPath("$[2].task.title").value("Propia editada"))
+                .andExpect(jsonPath("$[3].status").value(204))
+                .andExpect(jsonPath("$[4].status").value(403))
+                .andExpect(jsonPath("$[5].status").value(404))
+                .andExpect(jsonPath("$[6].status").value(400));
+
+        assertEquals(3, taskRepo.findByUserId(user.getId()).size());
+        assertEquals("Ajena", taskRepo.findById(ajena.getId()).orElseThrow().getTitle());
+        assertTrue(taskRepo.findById(propia.getId()).orElseThrow().isCompleted());
+    }
+
+    @Test
+    void setCompleted_seAplicaEnElFlush() throws Exception {
+        TaskEntity saved = taskRepo.save(TaskEntity.builder().title("Toggle").user(user).build());
+
+        for (boolean value : new boolean[]{true, false, true}) {
+            mvc.perform(patch("/tasks/{id}/completed", saved.getId())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"completed\":" + value + "}")
+                            .principal(auth)
+                    )
+                    .andExpect(status().isAccepted());
+        }
+        writeBehind.flush();
+
+        assertTrue(taskRepo.findById(saved.getId()).orElseThrow().isCompleted());
+
+        mvc.perform(patch("/tasks/{id}/completed", 999999)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"completed\":true}")
+                        .principal(auth)
+                )
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void batch_descartaElCambioDeCompletedPendiente() throws Exception {
+        TaskEntity saved = taskRepo.save(TaskEntity.builder().title("Toggle").user(user).build());
+
+        mvc.perform(patch("/tasks/{id}/completed", saved.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"completed\":true}")
+                        .principal(auth))
+                .andExpect(status().isAccepted());
+        mvc.perform(post("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"op":"UPDATE","id":%d,"task":{"title":"Del lote","completed":false}}]
+                                """.formatted(saved.getId()))
+                        .principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200));
+        writeBehind.flush();
+
+        TaskEntity after = taskRepo.findById(saved.getId()).orElseThrow();
+        assertEquals("Del lote", after.getTitle());
+        assertFalse(after.isCompleted());
+        assertEquals(0, writeBehind.pendingCount());
+    }
+
+    @Test
+    void updateYDelete_verificanPropiedadEnUnaSolaSentencia() throws Exception {
+        UserEntity otro = userRepo.save(UserEntity.builder()
+                .username("ajeno")
+                .password("pwd")
+                .role(Role.USER)
+                .enabled(true)
+                .createdAt(Instant.now())
+                .build());
+        TaskEntity propia = taskRepo.save(TaskEntity.builder().title("Propia").user(user).build());
+        TaskEntity ajena = taskRepo.save(TaskEntity.builder().title("Ajena").user(otro).build());
+
+        mvc.perform(put("/tasks/{id}", propia.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Editada\",\"completed\":true}")
+                        .principal(auth)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Editada"))
+                .andExpect(jsonPath("$.completed").value(true))
+                .andExpect(jsonPath("$.createdAt", notNullValue()));
+
+        mvc.perform(put("/tasks/{id}", ajena.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Hack\"}")
+                        .principal(auth)
+                )
+                .andExpect(status().isForbidden());
+
+        mvc.perform(delete("/tasks/{id}", ajena.getId()).principal(auth))
+                .andExpect(status().isForbidden());
+        mvc.perform(delete("/tasks/{id}", 999999).principal(auth))
+                .andExpect(status().isNotFound());
+        mvc.perform(delete("/tasks/{id}", propia.getId()).principal(auth))
+                .andExpect(status().isNoContent());
+
+        assertEquals("Ajena", taskRepo.findById(ajena.getId()).orElseThrow().getTitle());
+        assertTrue(taskRepo.findById(propia.getId()).isEmpty());
+    }
+
+    @Test
+    void searchTasks_buscaEnTituloYDescripcionSoloDelUsuario() throws Exception {
+        UserEntity otro = userRepo.save(UserEntity.builder()
+                .username("otro")
+                .password("pwd")
+                .role(Role.USER)
+                .createdAt(Instant.now())
+                .build());
+        taskRepo.save(TaskEntity.builder().title("Comprar leche").user(user).build());
+        taskRepo.save(TaskEntity.builder().title("Súper").description("Pan y LECHE").user(user).build());
+        taskRepo.save(TaskEntity.builder().title("Pagar luz").user(user).build());
+        taskRepo.save(TaskEntity.builder().title("Leche ajena").user(otro).build());
+
+        mvc.perform(get("/tasks/search")
+                        .param("q", "leche")
+                        .param("size", "1")
+                        .principal(auth)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string("X-Next-Page", "1"));
+
+        mvc.perform(get("/tasks/search")
+                        .param("q", "leche")
+                        .param("page", "1")
+                        .param("size", "1")
+                        .principal(auth)
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().doesNotExist("X-Next-Page"));
+
+        mvc.perform(get("/tasks/search").param("q", "leche").principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        mvc.perform(get("/tasks/search").param("q", "  ").principal(auth))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/tasks/search").param("q", "leche").param("page", "1000").principal(auth))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getChanges_devuelveModificadasYBorradasDesdeElCursor() throws Exception {
+        TaskEntity a = taskRepo.save(TaskEntity.builder().title("A").user(user).build());
+        TaskEntity b = taskRepo.save(TaskEntity.builder().title("B").user(user).build());
+
+        String first = mvc.perform(get("/tasks/changes").param("limit", "1").principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated", hasSize(1)))
+                .andExpect(jsonPath("$.updated[0].updatedAt", notNullValue()))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andReturn().getResponse().getContentAsString();
+        String next = mapper.readTree(first).get("next").asText();
+
+        String second = mvc.perform(get("/tasks/changes").param("since", next).principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated", hasSize(1)))
+                .andExpect(jsonPath("$.updated[0].title").value("B"))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andReturn().getResponse().getContentAsString();
+        next = mapper.readTree(second).get("next").asText();
+
+        mvc.perform(put("/tasks/{id}", a.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"A editada\"}")
+                        .principal(auth))
+                .andExpect(status().isOk());
+        mvc.perform(delete("/tasks/{id}", b.getId()).principal(auth))
+                .andExpect(status().isNoContent());
+
+        // El cursor se atrasa unos segundos, así que pueden repetirse cambios ya vistos
+        mvc.perform(get("/tasks/changes").param("since", next).principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated[?(@.id == %d)].title", a.getId()).value("A editada"))
+                .andExpect(jsonPath("$.updated[?(@.id == %d)]", b.getId()).isEmpty())
+                .andExpect(jsonPath("$.deleted", hasSize(1)))
+                .andExpect(jsonPath("$.deleted[0]").value(b.getId()));
+
+        mvc.perform(get("/tasks/changes").param("since", "no-es-un-cursor").principal(auth))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listTasksYGetById_respondenNotModifiedHastaQueHayUnaEscritura() throws Exception {
+        String body = mvc.perform(post("/tasks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Con ETag\"}")
+                        .principal(auth)
+                )
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = mapper.readTree(body).get("id").asLong();
+
+        String listEtag = mvc.perform(get("/tasks").principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String taskEtag = mvc.perform(get("/tasks/{id}", id).principal(auth))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/tasks").header(HttpHeaders.IF_NONE_MATCH, listEtag).principal(auth))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mvc.perform(get("/tasks/{id}", id).header(HttpHeaders.IF_NONE_MATCH, taskEtag).principal(auth))
+                .andExpect(status().isNotModified());
+
+        // El write-behind también cambia la versión al escribir
+        mvc.perform(patch("/tasks/{id}/completed", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"completed\":true}")
+                        .principal(auth)
+                )
+                .andExpect(status().isAccepted());
+        writeBehind.flush();
+
+        String newListEtag = mvc.perform(get("/tasks").header(HttpHeaders.IF_NONE_MATCH, listEtag).principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].completed").value(true))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(listEtag, newListEtag);
+
+        mvc.perform(put("/tasks/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Editada\"}")
+                        .principal(auth)
+                )
+                .andExpect(status().isOk());
+        mvc.perform(get("/tasks").header(HttpHeaders.IF_NONE_MATCH, newListEtag).principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("Editada"));
+        mvc.perform(get("/tasks/{id}", id).header(HttpHeaders.IF_NONE_MATCH, taskEtag).principal(auth))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void subscribeEvents_recibeLasTareasCreadasDespuesDelCommit() throws Exception {
+        MvcResult stream = mvc.perform(get("/tasks/events").principal(auth))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(post("/tasks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Push\"}")
+                        .principal(auth)
+                )
+                .andExpect(status().isOk());
+
+        // Los eventos se escriben desde otro hilo
+        String body = "";
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!body.contains("\"Push\"") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            body = stream.getResponse().getContentAsString();
+        }
+        assertTrue(body.contains("event:task"), body);
+        assertTrue(body.contains("\"type\":\"CREATED\""), body);
+        assertTrue(body.contains("\"title\":\"Push\""), body);
+    }
+
+    @Test
+    void getStats_seMantieneConCadaEscrituraYLaReconciliacionCorrigeDesvios() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        long vencida = createTask("Vencida", now.minusDays(2));
+        long deHoy = createTask("De hoy", LocalDate.now().atTime(12, 0));
+        long futura = createTask("Futura", now.plusDays(3));
+        long sinFecha = createTask("Sin fecha", null);
+        expectStats(4, 0, 1, 1);
+
+        mvc.perform(put("/tasks/{id}", deHoy)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"De hoy\",\"completed\":true}")
+                        .principal(auth))
+                .andExpect(status().isOk());
+        expectStats(4, 1, 1, 0);
+
+        mvc.perform(patch("/tasks/{id}/completed", vencida)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"completed\":true}")
+                        .principal(auth))
+                .andExpect(status().isAccepted());
+        writeBehind.flush();
+        expectStats(4, 2, 0, 0);
+
+        mvc.perform(delete("/tasks/{id}", futura).principal(auth))
+                .andExpect(status().isNoContent());
+        mvc.perform(post("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"op":"UPDATE","id":%d,"task":{"title":"Ayer","dueDate":"%s"}}]
+                                """.formatted(sinFecha, now.minusDays(1)))
+                        .principal(auth))
+                .andExpect(status().isOk());
+        expectStats(3, 2, 1, 0);
+
+        // Escritura que no pasa por TaskService: los contadores quedan desviados hasta reconciliar
+        taskRepo.save(TaskEntity.builder().title("Directa").dueDate(LocalDate.now().atTime(18, 0)).user(user).build());
+        expectStats(3, 2, 1, 0);
+
+        statsService.reconcile();
+        expectStats(4, 2, 1, 1);
+    }
+
+    private long createTask(String title, LocalDateTime dueDate) throws Exception {
+        String body = mvc.perform(post("/tasks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(TaskDto.builder().title(title).dueDate(dueDate).build()))
+                        .principal(auth))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(body).get("id").asLong();
+    }
+
+    private void expectStats(long total, long completed, long overdue, long dueToday) throws Exception {
+        mvc.perform(get("/tasks/stats").principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(total))
+                .andExpect(jsonPath("$.completed").value(completed))
+                .andExpect(jsonPath("$.overdue").value(overdue))
+                .andExpect(jsonPath("$.dueToday").value(dueToday));
+    }
+}
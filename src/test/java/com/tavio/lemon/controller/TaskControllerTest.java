@@ -1,6 +1,8 @@
 package com.tavio.lemon.controller;
 
 
+import com.tavio.lemon.domain.repository.TaskCursor;
+import com.tavio.lemon.domain.repository.TaskFilter;
 import com.tavio.lemon.domain.service.TaskService;
 import com.tavio.lemon.domain.service.UserService;
 import com.tavio.lemon.entity.Role;
@@ -16,9 +18,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
@@ -26,6 +32,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.HttpStatus.FORBIDDEN;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,6 +48,7 @@ class TaskControllerTest {
     private TaskController controller;
 
     private Authentication auth;
+    private ServletWebRequest request;
     private UserEntity user;
     private TaskEntity task;
 
@@ -57,6 +65,7 @@ class TaskControllerTest {
                 .username("pepito")
                 .build());
         auth = new UsernamePasswordAuthenticationToken(principal, null);
+        request = new ServletWebRequest(new MockHttpServletRequest("GET", "/tasks"), new MockHttpServletResponse());
 
         task = TaskEntity.builder()
                 .id(42L)
@@ -71,38 +80,100 @@ class TaskControllerTest {
 
     @Test
     void listTasks_deberíaDevolverDtosParaElUsuario() {
-        when(taskService.getAllByUser(7L)).thenReturn(List.of(task));
+        TaskFilter filter = new TaskFilter();
+        when(taskService.getDtoPageByUser(7L, filter, null, 51)).thenReturn(List.of(TaskMapper.toDto(task)));
 
-        ResponseEntity<List<TaskDto>> resp = controller.listTasks(auth);
+        ResponseEntity<List<TaskDto>> resp = controller.listTasks(filter, null, 50, auth, request);
 
         assertEquals(200, resp.getStatusCodeValue());
         List<TaskDto> body = resp.getBody();
         assertNotNull(body);
         assertEquals(1, body.size());
         assertEquals("Tarea X", body.get(0).getTitle());
-        verify(taskService).getAllByUser(7L);
+        assertNull(resp.getHeaders().getFirst(TaskController.NEXT_CURSOR_HEADER));
+        verify(taskService).getDtoPageByUser(7L, filter, null, 51);
+    }
+
+    @Test
+    void listTasks_conMasResultados_devuelveCursorSiguiente() {
+        TaskEntity otra = TaskEntity.builder()
+                .id(43L)
+                .title("Tarea Y")
+                .createdAt(task.getCreatedAt().plusSeconds(1))
+                .user(user)
+                .build();
+        when(taskService.getDtoPageByUser(eq(7L), any(), isNull(), eq(2)))
+                .thenReturn(List.of(TaskMapper.toDto(task), TaskMapper.toDto(otra)));
+
+        ResponseEntity<List<TaskDto>> resp = controller.listTasks(new TaskFilter(), null, 1, auth, request);
+
+        assertEquals(1, resp.getBody().size());
+        String next = resp.getHeaders().getFirst(TaskController.NEXT_CURSOR_HEADER);
+        assertNotNull(next);
+        TaskCursor cursor = TaskCursor.decode(next);
+        assertEquals(42L, cursor.getId());
+        assertEquals(task.getCreatedAt(), cursor.getTimestamp());
+    }
+
+    @Test
+    void listTasks_conCursorInvalido_lanza400() {
+        ResponseStatusException ex = assertThrows(
+                ResponseStatusException.class,
+                () -> controller.listTasks(new TaskFilter(), "no-es-un-cursor", 10, auth, request)
+        );
+        assertEquals(400, ex.getStatusCode().value());
+    }
+
+    @Test
+    void listTasks_conEtagVigente_devuelve304SinConsultar() {
+        when(taskService.getVersion(7L)).thenReturn(3L);
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/tasks");
+        req.addHeader(HttpHeaders.IF_NONE_MATCH, "\"t7-3\"");
+        MockHttpServletResponse res = new MockHttpServletResponse();
+
+        ResponseEntity<List<TaskDto>> resp = controller.listTasks(new TaskFilter(), null, 10, auth,
+                new ServletWebRequest(req, res));
+
+        assertNull(resp);
+        assertEquals(304, res.getStatus());
+        verify(taskService, never()).getDtoPageByUser(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void listTasks_conEtagViejo_devuelveListadoYEtagNuevo() {
+        when(taskService.getVersion(7L)).thenReturn(4L);
+        when(taskService.getDtoPageByUser(eq(7L), any(), isNull(), eq(11))).thenReturn(List.of(TaskMapper.toDto(task)));
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/tasks");
+        req.addHeader(HttpHeaders.IF_NONE_MATCH, "\"t7-3\"");
+        MockHttpServletResponse res = new MockHttpServletResponse();
+
+        ResponseEntity<List<TaskDto>> resp = controller.listTasks(new TaskFilter(), null, 10, auth,
+                new ServletWebRequest(req, res));
+
+        assertEquals(200, resp.getStatusCodeValue());
+        assertEquals("\"t7-4\"", res.getHeader(HttpHeaders.ETAG));
     }
 
     @Test
     void getById_siEsDelUsuario_retornaDto() {
-        when(taskService.getById(42L)).thenReturn(Optional.of(task));
+        when(taskService.getDtoById(42L)).thenReturn(Optional.of(TaskMapper.toDto(task)));
 
-        ResponseEntity<TaskDto> resp = controller.getById(42L, auth);
+        ResponseEntity<TaskDto> resp = controller.getById(42L, auth, request);
 
         assertEquals(200, resp.getStatusCodeValue());
         TaskDto dto = resp.getBody();
         assertNotNull(dto);
         assertEquals(42L, dto.getId());
-        verify(taskService).getById(42L);
+        verify(taskService).getDtoById(42L);
     }
 
     @Test
     void getById_siNoExiste_lanza404() {
-        when(taskService.getById(99L)).thenReturn(Optional.empty());
+        when(taskService.getDtoById(99L)).thenReturn(Optional.empty());
 
         ResponseStatusException ex = assertThrows(
                 ResponseStatusException.class,
-                () -> controller.getById(99L, auth)
+                () -> controller.getById(99L, auth, request)
         );
         assertEquals("404 NOT_FOUND \"Tarea no encontrada\"", ex.getMessage());
     }
@@ -111,11 +182,11 @@ class TaskControllerTest {
     void getById_siNoEsPropia_lanza403() {
         UserEntity otro = UserEntity.builder().id(8L).build();
         TaskEntity t2 = TaskEntity.builder().id(100L).user(otro).build();
-        when(taskService.getById(100L)).thenReturn(Optional.of(t2));
+        when(taskService.getDtoById(100L)).thenReturn(Optional.of(TaskMapper.toDto(t2)));
 
         ResponseStatusException ex = assertThrows(
                 ResponseStatusException.class,
-                () -> controller.getById(100L, auth)
+                () -> controller.getById(100L, auth, request)
         );
         assertEquals("403 FORBIDDEN \"No autorizado\"", ex.getMessage());
     }
@@ -154,38 +225,35 @@ class TaskControllerTest {
                 .description("Desc mod")
                 .dueDate(LocalDateTime.now().plusDays(3))
                 .build();
-        when(taskService.getById(42L)).thenReturn(Optional.of(task));
-        TaskEntity updated = TaskEntity.builder()
+        TaskDto updated = TaskDto.builder()
                 .id(42L)
                 .title("Modificada")
-                .user(user)
+                .userId(7L)
                 .createdAt(task.getCreatedAt())
                 .build();
-        when(taskService.save(any(TaskEntity.class))).thenReturn(updated);
+        when(taskService.updateOwned(42L, 7L, dtoIn)).thenReturn(updated);
 
         ResponseEntity<TaskDto> resp = controller.updateTask(42L, dtoIn, auth);
 
         assertEquals(200, resp.getStatusCodeValue());
         assertEquals("Modificada", resp.getBody().getTitle());
-        verify(taskService).getById(42L);
-        verify(taskService).save(any());
+        verify(taskService).updateOwned(42L, 7L, dtoIn);
+        verify(taskService, never()).getById(any());
     }
 
     @Test
     void deleteTask_siEsPropia_devuelve204() {
-        when(taskService.getById(42L)).thenReturn(Optional.of(task));
-        doNothing().when(taskService).delete(42L);
-
         ResponseEntity<Void> resp = controller.deleteTask(42L, auth);
 
         assertEquals(204, resp.getStatusCodeValue());
-        verify(taskService).delete(42L);
+        verify(taskService).deleteOwned(42L, 7L);
+        verify(taskService, never()).getById(any());
     }
 
     @Test
     void deleteTask_siNoEsPropia_lanza403() {
-        TaskEntity t2 = TaskEntity.builder().id(99L).user(UserEntity.builder().id(9L).build()).build();
-        when(taskService.getById(99L)).thenReturn(Optional.of(t2));
+        doThrow(new ResponseStatusException(FORBIDDEN, "No autorizado"))
+                .when(taskService).deleteOwned(99L, 7L);
 
         ResponseStatusException ex = assertThrows(
                 ResponseStatusException.class,
@@ -0,0 +1,220 @@
+package com.tavio.lemon.controller;
+
+import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.repository.TaskRepositoryCustom;
+import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.domain.repository.UserTaskVersionRepository;
+import com.tavio.lemon.domain.service.TaskService;
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.TaskEntity;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.security.UserDetailsImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Los caminos que solo corren en Postgres (UPDATE/DELETE ... RETURNING de TaskRepositoryImpl).
+ * El perfil test usa H2 y cae a las variantes sin RETURNING: esta clase corre solo con
+ * TEST_POSTGRES_URL (ver application-test-postgres.properties).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test-postgres")
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = ".+")
+class TaskPostgresIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private TaskRepository taskRepo;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private UserTaskVersionRepository versionRepo;
+
+    private UserEntity user;
+    private UserEntity otro;
+    private Authentication auth;
+
+    @BeforeEach
+    void setup() {
+        taskRepo.deleteAll();
+        userRepo.deleteAll();
+        emf.getCache().evictAll();
+        user = userRepo.save(newUser("pg-propio"));
+        otro = userRepo.save(newUser("pg-ajeno"));
+        auth = new UsernamePasswordAuthenticationToken(UserDetailsImpl.build(user), null);
+    }
+
+    @Test
+    void updateYDeleteOwned_tareaAjenaOInexistente_noEscribenYRespondenSegunElCaso() throws Exception {
+        TaskEntity ajena = taskService.save(TaskEntity.builder().title("Ajena").user(otro).build());
+
+        assertTrue(taskRepo.updateOwned(ajena.getId(), user.getId(), "Hack", null, true, null,
+                LocalDateTime.now()).isEmpty());
+        assertTrue(taskRepo.deleteOwned(ajena.getId(), user.getId()).isEmpty());
+
+        mvc.perform(put("/tasks/{id}", ajena.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Hack\"}")
+                        .principal(auth))
+                .andExpect(status().isForbidden());
+        mvc.perform(put("/tasks/{id}", 999999)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Nada\"}")
+                        .principal(auth))
+                .andExpect(status().isNotFound());
+        mvc.perform(delete("/tasks/{id}", ajena.getId()).principal(auth))
+                .andExpect(status().isForbidden());
+        mvc.perform(delete("/tasks/{id}", 999999).principal(auth))
+                .andExpect(status().isNotFound());
+
+        TaskEntity intacta = taskRepo.findById(ajena.getId()).orElseThrow();
+        assertEquals("Ajena", intacta.getTitle());
+        assertFalse(intacta.isCompleted());
+    }
+
+    @Test
+    void updateYDeleteOwned_devuelvenElEstadoPrevio() {
+        LocalDateTime due = LocalDate.now().minusDays(2).atTime(9, 0);
+        LocalDateTime newDue = LocalDate.now().plusDays(3).atTime(18, 30);
+        TaskEntity task = taskService.save(TaskEntity.builder().title("Previa").dueDate(due).user(user).build());
+
+        TaskRepositoryCustom.OwnedUpdate result = taskRepo.updateOwned(task.getId(), user.getId(),
+                "Nueva", "desc", true, newDue, LocalDateTime.now()).orElseThrow();
+
+        assertEquals(new TaskRepositoryCustom.PreviousState(false, due), result.previous());
+        assertEquals("Nueva", result.task().getTitle());
+        assertEquals("desc", result.task().getDescription());
+        assertTrue(result.task().isCompleted());
+        assertEquals(newDue, result.task().getDueDate());
+        assertEquals(user.getId(), result.task().getUserId());
+
+        assertEquals(new TaskRepositoryCustom.PreviousState(true, newDue),
+                taskRepo.deleteOwned(task.getId(), user.getId()).orElseThrow());
+        assertTrue(taskRepo.findById(task.getId()).isEmpty());
+    }
+
+    @Test
+    void updateOwned_losContadoresUsanElEstadoPrevioDelReturning() throws Exception {
+        LocalDateTime vencida = LocalDate.now().minusDays(2).atTime(9, 0);
+        TaskEntity task = taskService.save(TaskEntity.builder().title("Vencida").dueDate(vencida).user(user).build());
+        expectStats(1, 0, 1);
+
+        mvc.perform(put("/tasks/{id}", task.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Vencida\",\"completed\":true,\"dueDate\":\"" + vencida + "\"}")
+                        .principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(true));
+        expectStats(1, 1, 0);
+
+        mvc.perform(delete("/tasks/{id}", task.getId()).principal(auth))
+                .andExpect(status().isNoContent());
+        expectStats(0, 0, 0);
+    }
+
+    @Test
+    void updateYDeleteOwned_sacanLaTareaDeLaCacheL2() throws Exception {
+        TaskEntity task = taskService.save(TaskEntity.builder().title("Cacheada").user(user).build());
+        taskService.getById(task.getId());
+        assertTrue(emf.getCache().contains(TaskEntity.class, task.getId()));
+
+        mvc.perform(put("/tasks/{id}", task.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Editada\"}")
+                        .principal(auth))
+                .andExpect(status().isOk());
+
+        assertFalse(emf.getCache().contains(TaskEntity.class, task.getId()));
+        assertEquals("Editada", taskService.getById(task.getId()).orElseThrow().getTitle());
+        assertTrue(emf.getCache().contains(TaskEntity.class, task.getId()));
+
+        mvc.perform(delete("/tasks/{id}", task.getId()).principal(auth))
+                .andExpect(status().isNoContent());
+
+        assertFalse(emf.getCache().contains(TaskEntity.class, task.getId()));
+        assertTrue(taskService.getById(task.getId()).isEmpty());
+    }
+
+    @Test
+    void bump_primerasEscriturasConcurrentes_creanLaVersionSinChocarPorLaPk() throws Exception {
+        // Usuario creado después de la migración V5: todavía no tiene fila en user_task_versions
+        assertTrue(versionRepo.findVersion(user.getId()).isEmpty());
+        int writers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> bumps = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                bumps.add(pool.submit(() -> {
+                    start.await();
+                    versionRepo.bump(user.getId());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> bump : bumps) {
+                bump.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(writers, versionRepo.findVersion(user.getId()).orElseThrow());
+    }
+
+    private void expectStats(long total, long completed, long overdue) throws Exception {
+        mvc.perform(get("/tasks/stats").principal(auth))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(total))
+                .andExpect(jsonPath("$.completed").value(completed))
+                .andExpect(jsonPath("$.overdue").value(overdue));
+    }
+
+    private static UserEntity newUser(String username) {
+        return UserEntity.builder()
+                .username(username)
+                .password("pwd")
+                .role(Role.USER)
+                .enabled(true)
+                .createdAt(Instant.now())
+                .build();
+    }
+}
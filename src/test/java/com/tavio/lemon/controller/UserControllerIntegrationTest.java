@@ -4,12 +4,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tavio.lemon.entity.UserEntity;
 import com.tavio.lemon.entity.Role;
 import com.tavio.lemon.security.UserDetailsImpl;
+import com.tavio.lemon.domain.repository.TaskRepository;
 import com.tavio.lemon.domain.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -37,11 +39,15 @@ class UserControllerIntegrationTest {
     @Autowired
     private UserRepository userRepo;
 
+    @Autowired
+    private TaskRepository taskRepo;
+
     private UserEntity user;
     private UserDetailsImpl principalUser;
 
     @BeforeEach
     void setup() {
+        taskRepo.deleteAll();
         userRepo.deleteAll();
 
         user = userRepo.save(UserEntity.builder()
@@ -88,6 +94,22 @@ class UserControllerIntegrationTest {
                 .andExpect(jsonPath("$.username").value("charlie"));
     }
 
+    @Test
+    void getById_conEtagVigente_retorna304() throws Exception {
+        String etag = mvc.perform(get("/users/{id}", user.getId())
+                        .with(user(principalUser))
+                )
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/users/{id}", user.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .with(user(principalUser))
+                )
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     void getById_siNoExiste_comoAdmin_retorna404() throws Exception {
         mvc.perform(get("/users/{id}", 999L)
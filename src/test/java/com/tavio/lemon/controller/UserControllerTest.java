@@ -65,6 +65,7 @@ class UserControllerTest {
 
         assertEquals(200, resp.getStatusCodeValue());
         assertEquals(existing, resp.getBody());
+        assertNotNull(resp.getHeaders().getETag());
         verify(userService).getById(10L);
     }
 
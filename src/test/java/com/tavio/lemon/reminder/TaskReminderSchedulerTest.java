@@ -0,0 +1,233 @@
+package com.tavio.lemon.reminder;
+
+import com.tavio.lemon.domain.reminder.TaskReminder;
+import com.tavio.lemon.domain.reminder.TaskReminderScheduler;
+import com.tavio.lemon.domain.reminder.TaskReminderSink;
+import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.service.TaskChangeEvent;
+import com.tavio.lemon.web.dto.TaskDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskReminderSchedulerTest {
+
+    private static final Duration LEAD = Duration.ofMinutes(15);
+    private static final Duration HORIZON = Duration.ofHours(6);
+
+    @Mock
+    private TaskRepository repo;
+
+    private final RecordingSink sink = new RecordingSink();
+    private TaskReminderScheduler scheduler;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        // Sin start(): la carga y los ticks se disparan a mano
+        scheduler = new TaskReminderScheduler(repo, sink, LEAD, HORIZON, Duration.ofSeconds(1));
+        now = Instant.now().plusSeconds(10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void advance_enviaElRecordatorioLeadAntesDelVencimiento() {
+        TaskRepository.ReminderRow informe = row(1L, "Informe", at(Duration.ofHours(1)));
+        when(repo.findOpenDueBetween(any(), any(), any(), any(), any())).thenReturn(List.of(informe));
+        when(repo.findOpenByIds(List.of(1L))).thenReturn(List.of(informe));
+
+        assertEquals(1, scheduler.loadAhead(now));
+        assertEquals(0, scheduler.advance(now.plus(Duration.ofMinutes(44))));
+        assertEquals(1, scheduler.advance(now.plus(Duration.ofMinutes(45))));
+
+        assertEquals(List.of(new TaskReminder(1L, 7L, "Informe", informe.getDueDate())), sink.sent);
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void loadAhead_leeSoloLaVentanaQueTodaviaNoCargo() {
+        scheduler.loadAhead(now);
+        scheduler.loadAhead(now.plus(Duration.ofMinutes(1)));
+
+        LocalDateTime firstEnd = local(now.plus(LEAD).plus(HORIZON));
+        verify(repo).findOpenDueBetween(eq(local(now)), eq(firstEnd), eq(local(now)), eq(0L), any());
+        verify(repo).findOpenDueBetween(eq(firstEnd), eq(firstEnd.plusMinutes(1)), eq(firstEnd), eq(0L), any());
+    }
+
+    @Test
+    void onTaskChange_reagendaOCancelaSegunElCambio() {
+        scheduler.loadAhead(now);
+
+        scheduler.onTaskChange(change(TaskChangeEvent.Type.CREATED, task(at(Duration.ofHours(1)), false)));
+        assertEquals(1, scheduler.pendingCount());
+
+        scheduler.onTaskChange(change(TaskChangeEvent.Type.UPDATED, task(at(Duration.ofHours(1)), true)));
+        assertEquals(0, scheduler.pendingCount());
+
+        scheduler.onTaskChange(change(TaskChangeEvent.Type.UPDATED, task(at(Duration.ofHours(2)), false)));
+        assertEquals(1, scheduler.pendingCount());
+
+        scheduler.onTaskChange(new TaskChangeEvent(TaskChangeEvent.Type.DELETED, 7L, 1L, null));
+        assertEquals(0, scheduler.pendingCount());
+
+        // Fuera de la ventana: lo agenda la carga cuando llegue
+        scheduler.onTaskChange(change(TaskChangeEvent.Type.UPDATED, task(at(Duration.ofHours(8)), false)));
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    void onTaskChange_reaperturaDelWriteBehind_seBuscaEnLoteEnElTick() {
+        scheduler.loadAhead(now);
+        when(repo.findOpenByIds(argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(1L, 2L)))))
+                .thenReturn(List.of(row(1L, "Reabierta", at(Duration.ofHours(1))),
+                        row(2L, "Reabierta", at(Duration.ofHours(2)))));
+
+        scheduler.onTaskChange(completion(1L, false));
+        scheduler.onTaskChange(completion(2L, false));
+        assertEquals(0, scheduler.pendingCount());
+
+        scheduler.advance(now);
+
+        assertEquals(2, scheduler.pendingCount());
+        verify(repo, times(1)).findOpenByIds(anyCollection());
+    }
+
+    @Test
+    void onTaskChange_completadaPorElWriteBehind_cancelaSinConsultar() {
+        scheduler.loadAhead(now);
+        scheduler.onTaskChange(change(TaskChangeEvent.Type.CREATED, task(at(Duration.ofHours(1)), false)));
+
+        scheduler.onTaskChange(completion(1L, true));
+
+        assertEquals(0, scheduler.pendingCount());
+        verify(repo, never()).findOpenByIds(anyCollection());
+    }
+
+    @Test
+    void advance_siFallaLaLecturaDeReabiertas_reintentaEnElProximoTick() {
+        scheduler.loadAhead(now);
+        when(repo.findOpenByIds(List.of(1L)))
+                .thenThrow(new RuntimeException("db caída"))
+                .thenReturn(List.of(row(1L, "Reabierta", at(Duration.ofHours(1)))));
+        scheduler.onTaskChange(completion(1L, false));
+
+        assertEquals(0, scheduler.advance(now));
+        assertEquals(0, scheduler.pendingCount());
+        scheduler.advance(now.plusSeconds(1));
+
+        assertEquals(1, scheduler.pendingCount());
+    }
+
+    @Test
+    void advance_tareaCompletadaDespuesDeCargarla_noEnvia() {
+        when(repo.findOpenDueBetween(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(row(1L, "Hecha", at(Duration.ofMinutes(30)))));
+        when(repo.findOpenByIds(List.of(1L))).thenReturn(List.of());
+        scheduler.loadAhead(now);
+
+        assertEquals(0, scheduler.advance(now.plus(Duration.ofMinutes(20))));
+        assertTrue(sink.sent.isEmpty());
+    }
+
+    @Test
+    void advance_conOtroVencimiento_reagendaConElActual() {
+        TaskRepository.ReminderRow movida = row(1L, "Movida", at(Duration.ofHours(2)));
+        when(repo.findOpenDueBetween(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(row(1L, "Movida", at(Duration.ofHours(1)))));
+        when(repo.findOpenByIds(List.of(1L))).thenReturn(List.of(movida));
+        scheduler.loadAhead(now);
+
+        assertEquals(0, scheduler.advance(now.plus(Duration.ofMinutes(45))));
+        assertEquals(1, scheduler.pendingCount());
+        assertEquals(1, scheduler.advance(now.plus(Duration.ofMinutes(105))));
+        assertEquals(movida.getDueDate(), sink.sent.get(0).dueDate());
+    }
+
+    @Test
+    void advance_siElSinkFalla_sigueConLosDemas() {
+        TaskRepository.ReminderRow falla = row(1L, "falla", at(Duration.ofMinutes(20)));
+        TaskRepository.ReminderRow ok = row(2L, "ok", at(Duration.ofMinutes(20)));
+        when(repo.findOpenDueBetween(any(), any(), any(), any(), any())).thenReturn(List.of(falla, ok));
+        when(repo.findOpenByIds(anyCollection())).thenReturn(List.of(falla, ok));
+        scheduler.loadAhead(now);
+
+        assertEquals(1, scheduler.advance(now.plus(Duration.ofMinutes(5))));
+        assertEquals(List.of(2L), sink.sent.stream().map(TaskReminder::taskId).toList());
+    }
+
+    private LocalDateTime at(Duration fromNow) {
+        return local(now.plus(fromNow));
+    }
+
+    private static LocalDateTime local(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    private static TaskDto task(LocalDateTime dueDate, boolean completed) {
+        return TaskDto.builder().id(1L).userId(7L).title("Tarea").dueDate(dueDate).completed(completed).build();
+    }
+
+    private static TaskChangeEvent change(TaskChangeEvent.Type type, TaskDto task) {
+        return new TaskChangeEvent(type, task.getUserId(), task.getId(), task);
+    }
+
+    private static TaskChangeEvent completion(Long taskId, boolean completed) {
+        return new TaskChangeEvent(TaskChangeEvent.Type.UPDATED, 7L, taskId, null, completed);
+    }
+
+    private static TaskRepository.ReminderRow row(Long id, String title, LocalDateTime dueDate) {
+        return new TaskRepository.ReminderRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getUserId() {
+                return 7L;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public LocalDateTime getDueDate() {
+                return dueDate;
+            }
+        };
+    }
+
+    // Sink de prueba: guarda lo recibido y falla con el título "falla"
+    private static final class RecordingSink implements TaskReminderSink {
+        private final List<TaskReminder> sent = new ArrayList<>();
+
+        @Override
+        public void send(TaskReminder reminder) {
+            if ("falla".equals(reminder.title())) {
+                throw new IllegalStateException("sink caído");
+            }
+            sent.add(reminder);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.tavio.lemon.reminder;
+
+import com.tavio.lemon.domain.reminder.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void advanceTo_cadaEntradaVenceEnSuTickAunqueCambieDeNivel() {
+        // Inicio sin alinear a ningún casillero
+        long start = 1_000_003;
+        TimingWheel<Long> wheel = new TimingWheel<>(6, 4, start);
+        long[] deltas = {0, 1, 63, 64, 65, 4095, 4096, 4097, 262_143, 300_000};
+        for (long delta : deltas) {
+            assertNotNull(wheel.schedule(start + delta, start + delta));
+        }
+
+        for (long tick = start; tick <= start + 300_000; tick++) {
+            List<Long> expired = wheel.advanceTo(tick);
+            for (Long deadline : expired) {
+                assertEquals(tick, deadline);
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedule_masAllaDelAlcanceOEnElPasado() {
+        TimingWheel<String> wheel = new TimingWheel<>(2, 2, 100);
+
+        assertNull(wheel.schedule("lejos", 100 + wheel.span()));
+
+        TimingWheel.Timer<String> atrasado = wheel.schedule("atrasado", 10);
+        assertEquals(100, atrasado.deadline());
+        assertEquals(List.of("atrasado"), wheel.advanceTo(100));
+        assertFalse(atrasado.isPending());
+        assertFalse(wheel.cancel(atrasado));
+    }
+
+    @Test
+    void advanceTo_conAltasYBajasAlAzar_coincideConUnaListaOrdenada() {
+        Random random = new Random(42);
+        TimingWheel<Integer> wheel = new TimingWheel<>(3, 3, 17);
+        Map<Integer, TimingWheel.Timer<Integer>> timers = new HashMap<>();
+        Map<Integer, Long> expected = new HashMap<>();
+        int next = 0;
+        long tick = 16;
+
+        while (tick < 20_000) {
+            for (int i = random.nextInt(4); i > 0; i--) {
+                long deadline = wheel.currentTick() + random.nextInt((int) wheel.span());
+                timers.put(next, wheel.schedule(next, deadline));
+                expected.put(next, deadline);
+                next++;
+            }
+            if (!expected.isEmpty() && random.nextInt(3) == 0) {
+                Integer victim = new ArrayList<>(expected.keySet()).get(random.nextInt(expected.size()));
+                assertTrue(wheel.cancel(timers.remove(victim)));
+                expected.remove(victim);
+            }
+
+            tick += 1 + random.nextInt(40);
+            List<Integer> fired = wheel.advanceTo(tick);
+            List<Integer> due = new ArrayList<>();
+            for (Map.Entry<Integer, Long> e : expected.entrySet()) {
+                if (e.getValue() <= tick) {
+                    due.add(e.getKey());
+                }
+            }
+            assertEquals(due.size(), fired.size());
+            assertTrue(fired.containsAll(due));
+            due.forEach(expected::remove);
+            due.forEach(timers::remove);
+            assertEquals(expected.size(), wheel.size());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.tavio.lemon.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        encoder.destroy();
+    }
+
+    @Test
+    void encodeYMatches_delegaYRegistraLatencia() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 1);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("otra", hash));
+        assertEquals(3, encoder.getOperationCount());
+        assertTrue(encoder.getTotalNanos() > 0);
+        assertTrue(encoder.getMaxNanos() > 0);
+    }
+
+    @Test
+    void bindTo_registraDuracionEnElTimer() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        encoder.matches("secret", encoder.encode("secret"));
+
+        assertEquals(2, registry.get("security.password.hashing").timer().count());
+        assertEquals(0, registry.get("security.password.hashing.rejected").functionCounter().count());
+    }
+
+    @Test
+    void encode_conPoolYColaLlenos_rechazaEnseguida() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slow = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence raw) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence raw, String encoded) {
+                return true;
+            }
+        };
+        encoder = new BoundedPasswordEncoder(slow, 1, 1);
+
+        // Uno ocupa el único hilo y otro queda en la cola
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        while (encoder.getQueueSize() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(PasswordHashingRejectedException.class, () -> encoder.encode("c"));
+        assertEquals(1, encoder.getRejectedCount());
+
+        release.countDown();
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -2,12 +2,14 @@ package com.tavio.lemon.service;
 
 import com.tavio.lemon.domain.repository.UserRepository;
 import com.tavio.lemon.domain.service.AuthService;
+import com.tavio.lemon.domain.service.RefreshTokenService;
 import com.tavio.lemon.entity.Role;
 import com.tavio.lemon.entity.UserEntity;
 import com.tavio.lemon.security.UserDetailsImpl;
 import com.tavio.lemon.web.config.JwtUtil;
 import com.tavio.lemon.web.dto.AuthResponse;
 import com.tavio.lemon.web.dto.LoginRequest;
+import com.tavio.lemon.web.dto.RefreshRequest;
 import com.tavio.lemon.web.dto.RegisterRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,6 +24,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.Instant;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,6 +37,7 @@ class AuthServiceTest {
     @Mock AuthenticationManager authManager;
     @Mock
     JwtUtil jwtUtil;
+    @Mock RefreshTokenService refreshTokens;
 
     @InjectMocks
     AuthService authService;
@@ -66,7 +70,8 @@ class AuthServiceTest {
                 .enabled(true)
                 .createdAt(Instant.now())
                 .build());
-        when(jwtUtil.generateToken(any(UserDetailsImpl.class))).thenReturn("tokenXYZ");
+        when(refreshTokens.create(10L)).thenReturn(new RefreshTokenService.Issued(100L, 10L, "100.abc"));
+        when(jwtUtil.generateToken(any(UserDetailsImpl.class), eq(100L))).thenReturn("tokenXYZ");
 
         AuthResponse resp = authService.register(regReq);
 
@@ -74,6 +79,7 @@ class AuthServiceTest {
         assertEquals("juan", resp.getUsername());
         assertEquals("USER", resp.getRole());
         assertEquals("tokenXYZ", resp.getToken());
+        assertEquals("100.abc", resp.getRefreshToken());
         verify(userRepo).existsByUsername("juan");
         verify(userRepo).save(argThat(u -> u.getPassword().equals("hashedSecret")));
     }
@@ -101,7 +107,9 @@ class AuthServiceTest {
         when(authManager.authenticate(
                 any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(auth);
-        when(jwtUtil.generateToken(principal)).thenReturn("jwt123");
+        when(refreshTokens.create(20L)).thenReturn(new RefreshTokenService.Issued(200L, 20L, "200.abc"));
+        when(jwtUtil.generateToken(principal, 200L)).thenReturn("jwt123");
+        when(jwtUtil.getExpiresInSeconds()).thenReturn(900L);
 
         AuthResponse resp = authService.login(loginReq);
 
@@ -109,6 +117,41 @@ class AuthServiceTest {
         assertEquals("juan", resp.getUsername());
         assertEquals("ADMIN", resp.getRole());
         assertEquals("jwt123", resp.getToken());
+        assertEquals("200.abc", resp.getRefreshToken());
+        assertEquals(900L, resp.getExpiresIn());
+    }
+
+    @Test
+    void refresh_tokenVigente_emiteTokensDeLaMismaSesionSinBCrypt() {
+        UserEntity user = UserEntity.builder()
+                .id(20L)
+                .username("juan")
+                .role(Role.USER)
+                .tokenVersion(2)
+                .build();
+        when(refreshTokens.rotate("200.viejo")).thenReturn(new RefreshTokenService.Issued(200L, 20L, "200.nuevo"));
+        when(userRepo.findById(20L)).thenReturn(Optional.of(user));
+        when(jwtUtil.generateToken(argThat(p -> p.getTokenVersion() == 2), eq(200L))).thenReturn("jwt456");
+
+        AuthResponse resp = authService.refresh(new RefreshRequest("200.viejo"));
+
+        assertEquals("jwt456", resp.getToken());
+        assertEquals("200.nuevo", resp.getRefreshToken());
+        verifyNoInteractions(authManager, passwordEncoder);
+    }
+
+    @Test
+    void refresh_usuarioDeshabilitado_lanzaBadCredentialsException() {
+        when(refreshTokens.rotate("200.viejo")).thenReturn(new RefreshTokenService.Issued(200L, 20L, "200.nuevo"));
+        when(userRepo.findById(20L)).thenReturn(Optional.of(UserEntity.builder()
+                .id(20L)
+                .username("juan")
+                .role(Role.USER)
+                .enabled(false)
+                .build()));
+
+        assertThrows(BadCredentialsException.class, () -> authService.refresh(new RefreshRequest("200.viejo")));
+        verify(jwtUtil, never()).generateToken(any(), any());
     }
 
     @Test
@@ -0,0 +1,120 @@
+package com.tavio.lemon.service;
+
+import com.tavio.lemon.domain.repository.RefreshTokenRepository;
+import com.tavio.lemon.domain.service.RefreshTokenService;
+import com.tavio.lemon.domain.service.SessionRevocationRegistry;
+import com.tavio.lemon.entity.RefreshTokenEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository repo;
+
+    @Mock
+    private SessionRevocationRegistry revocations;
+
+    private RefreshTokenService service;
+    private RefreshTokenEntity session;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        service = new RefreshTokenService(repo, revocations, Duration.ofDays(30));
+        when(repo.save(any())).thenAnswer(inv -> {
+            session = inv.getArgument(0);
+            session.setId(42L);
+            return session;
+        });
+        token = service.create(7L).token();
+    }
+
+    @Test
+    void create_guardaSoloElHashDelSecreto() {
+        assertTrue(token.startsWith("42."));
+        assertFalse(session.getTokenHash().contains(token.substring(3)));
+        assertEquals(7L, session.getUserId());
+    }
+
+    @Test
+    void rotate_tokenVigente_devuelveUnoNuevoDeLaMismaSesion() {
+        when(repo.findById(42L)).thenReturn(Optional.of(session));
+        when(repo.rotate(eq(42L), eq(session.getTokenHash()), anyString(), any())).thenReturn(1);
+
+        RefreshTokenService.Issued issued = service.rotate(token);
+
+        assertEquals(42L, issued.sessionId());
+        assertEquals(7L, issued.userId());
+        assertNotEquals(token, issued.token());
+        assertTrue(issued.token().startsWith("42."));
+    }
+
+    @Test
+    void rotate_tokenYaRotado_revocaLaSesion() {
+        when(repo.findById(42L)).thenReturn(Optional.of(session));
+        ArgumentCaptor<String> newHash = ArgumentCaptor.forClass(String.class);
+        when(repo.rotate(eq(42L), eq(session.getTokenHash()), newHash.capture(), any())).thenReturn(1);
+        service.rotate(token);
+        // Lo que hizo el UPDATE en la base
+        session.setPreviousHash(session.getTokenHash());
+        session.setTokenHash(newHash.getValue());
+
+        assertThrows(BadCredentialsException.class, () -> service.rotate(token));
+
+        verify(repo).revoke(eq(42L), any());
+        verify(revocations).revoke(42L, session.getExpiresAt());
+    }
+
+    @Test
+    void rotate_sesionRevocadaEnMemoria_rechazaSinIrALaBase() {
+        when(revocations.isRevoked(42L)).thenReturn(true);
+
+        assertThrows(BadCredentialsException.class, () -> service.rotate(token));
+
+        verify(repo, never()).findById(any());
+    }
+
+    @Test
+    void rotate_secretoIncorrectoOTokenMalFormado_rechaza() {
+        when(repo.findById(42L)).thenReturn(Optional.of(session));
+
+        assertThrows(BadCredentialsException.class, () -> service.rotate("42.otro"));
+        assertThrows(BadCredentialsException.class, () -> service.rotate("abc"));
+        assertThrows(BadCredentialsException.class, () -> service.rotate("x.abc"));
+        verify(repo, never()).rotate(any(), any(), any(), any());
+    }
+
+    @Test
+    void rotate_sesionVencida_rechaza() {
+        session.setExpiresAt(Instant.now().minusSeconds(1));
+        when(repo.findById(42L)).thenReturn(Optional.of(session));
+
+        assertThrows(BadCredentialsException.class, () -> service.rotate(token));
+    }
+
+    @Test
+    void revoke_logout_revocaEnLaBaseYEnMemoria() {
+        when(repo.findById(42L)).thenReturn(Optional.of(session));
+
+        service.revoke(token);
+        service.revoke("42.otro");
+
+        verify(repo, times(1)).revoke(eq(42L), any());
+        verify(revocations, times(1)).revoke(42L, session.getExpiresAt());
+    }
+}
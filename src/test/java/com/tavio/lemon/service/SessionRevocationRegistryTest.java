@@ -0,0 +1,103 @@
+package com.tavio.lemon.service;
+
+import com.tavio.lemon.domain.repository.RefreshTokenRepository;
+import com.tavio.lemon.domain.service.SessionRevocationRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionRevocationRegistryTest {
+
+    private static final Instant EXPIRES = Instant.now().plus(Duration.ofDays(30));
+
+    @Mock
+    private RefreshTokenRepository repo;
+
+    private SessionRevocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SessionRevocationRegistry(repo, 1000);
+    }
+
+    @Test
+    void rebuild_cargaLasSesionesRevocadas() {
+        when(repo.findRevokedSince(any(), any())).thenReturn(List.of(session(1L), session(3L)));
+
+        registry.rebuild();
+
+        assertTrue(registry.isRevoked(1L));
+        assertFalse(registry.isRevoked(2L));
+        assertTrue(registry.isRevoked(3L));
+    }
+
+    @Test
+    void refresh_agregaLasRevocacionesDeOtrosNodos() {
+        when(repo.findRevokedSince(any(), any())).thenReturn(List.of());
+        registry.rebuild();
+        assertFalse(registry.isRevoked(5L));
+
+        when(repo.findRevokedSince(any(), any())).thenReturn(List.of(session(5L)));
+        registry.refresh();
+
+        assertTrue(registry.isRevoked(5L));
+    }
+
+    @Test
+    void isRevoked_sinFalsosNegativosYConPocosFalsosPositivos() {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        registry.bindTo(meters);
+        for (long id = 1; id <= 1000; id++) {
+            registry.revoke(id, EXPIRES);
+        }
+
+        for (long id = 1; id <= 1000; id++) {
+            assertTrue(registry.isRevoked(id));
+        }
+        for (long id = 1001; id <= 11_000; id++) {
+            assertFalse(registry.isRevoked(id));
+        }
+        // Filtro dimensionado para 1000 revocaciones al 1%: margen amplio para no ser frágil
+        double falsePositives = meters.get("security.sessions.revoked.false_positives").functionCounter().count();
+        assertTrue(falsePositives < 300, "falsos positivos: " + falsePositives);
+        assertEquals(1000, meters.get("security.sessions.revoked").gauge().value());
+    }
+
+    @Test
+    void rebuild_descartaLoRevocadoLocalmenteQueYaVencio() {
+        when(repo.findRevokedSince(any(), any())).thenReturn(List.of());
+        registry.revoke(7L, Instant.now().minusSeconds(1));
+        registry.revoke(8L, EXPIRES);
+
+        registry.rebuild();
+
+        assertFalse(registry.isRevoked(7L));
+        assertTrue(registry.isRevoked(8L));
+    }
+
+    private static RefreshTokenRepository.SessionState session(Long id) {
+        return new RefreshTokenRepository.SessionState() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Instant getExpiresAt() {
+                return EXPIRES;
+            }
+        };
+    }
+}
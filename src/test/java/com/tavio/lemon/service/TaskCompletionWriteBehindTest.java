@@ -0,0 +1,190 @@
+package com.tavio.lemon.service;
+
+import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.repository.UserTaskVersionRepository;
+import com.tavio.lemon.domain.service.TaskChangeEvent;
+import com.tavio.lemon.domain.service.TaskCompletionWriteBehind;
+import com.tavio.lemon.domain.service.TaskStatsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskCompletionWriteBehindTest {
+
+    @Mock
+    private TaskRepository repo;
+
+    @Mock
+    private UserTaskVersionRepository versionRepo;
+
+    @Mock
+    private TaskStatsService stats;
+
+    @Mock
+    private PlatformTransactionManager txManager;
+
+    @Mock
+    private ApplicationEventPublisher events;
+
+    private TaskCompletionWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        // Intervalo largo: en el test los flush se disparan a mano
+        writeBehind = new TaskCompletionWriteBehind(repo, versionRepo, stats, txManager, events, Duration.ofHours(1), 1000);
+        // Todas las tareas existen
+        lenient().when(repo.lockForCompletion(anyCollection()))
+                .thenAnswer(inv -> new ArrayList<>(inv.<Collection<Long>>getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writeBehind.shutdown();
+    }
+
+    @Test
+    void flush_combinaCambiosRepetidosDeLaMismaTarea() {
+        writeBehind.enqueue(1L, 7L, true);
+        writeBehind.enqueue(1L, 7L, false);
+        writeBehind.enqueue(2L, 7L, false);
+        when(repo.updateCompleted(anyCollection(), eq(false), any())).thenReturn(2);
+
+        assertEquals(2, writeBehind.flush());
+
+        verify(repo).updateCompleted(argThat(ids -> ids.containsAll(List.of(1L, 2L)) && ids.size() == 2), eq(false), any());
+        verify(versionRepo).incrementForTasks(argThat(ids -> ids.containsAll(List.of(1L, 2L)) && ids.size() == 2));
+        verify(repo, never()).updateCompleted(anyCollection(), eq(true), any());
+        verify(events, times(2)).publishEvent(argThat((Object e) -> e instanceof TaskChangeEvent change
+                && change.getType() == TaskChangeEvent.Type.UPDATED && change.getUserId() == 7L));
+        assertEquals(0, writeBehind.pendingCount());
+    }
+
+    @Test
+    void flush_aplicaALosContadoresLasTareasQueCambian() {
+        writeBehind.enqueue(1L, 7L, true);
+        writeBehind.enqueue(2L, 7L, true);
+        when(repo.findCompletionChanges(anyCollection(), eq(true)))
+                .thenReturn(List.of(change(7L, LocalDateTime.of(2026, 10, 18, 9, 0), 1)));
+        when(repo.updateCompleted(anyCollection(), eq(true), any())).thenReturn(2);
+
+        writeBehind.flush();
+
+        InOrder order = inOrder(repo, stats);
+        order.verify(repo).findCompletionChanges(anyCollection(), eq(true));
+        order.verify(repo).updateCompleted(anyCollection(), eq(true), any());
+        order.verify(stats).apply(eq(7L), any(TaskStatsService.Delta.class));
+        verifyNoMoreInteractions(stats);
+    }
+
+    @Test
+    void discard_evitaQueElFlushPiseOtraEscritura() {
+        writeBehind.enqueue(1L, 7L, true);
+        writeBehind.discard(1L);
+
+        assertEquals(0, writeBehind.flush());
+
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void discard_duranteElFlush_noSeEscribeAunqueYaSeHayaLeidoLaCola() {
+        writeBehind.enqueue(1L, 7L, true);
+        writeBehind.enqueue(2L, 7L, true);
+        // Un PUT de la tarea 1 llega mientras el flush espera los locks de las filas
+        when(repo.lockForCompletion(anyCollection())).thenAnswer(inv -> {
+            writeBehind.discard(1L);
+            return new ArrayList<>(inv.<Collection<Long>>getArgument(0));
+        });
+
+        assertEquals(1, writeBehind.flush());
+
+        verify(repo).updateCompleted(eq(List.of(2L)), eq(true), any());
+        verify(events, times(1)).publishEvent(any(Object.class));
+        assertEquals(0, writeBehind.pendingCount());
+    }
+
+    @Test
+    void enqueue_duranteElFlush_quedaParaElProximo() {
+        writeBehind.enqueue(1L, 7L, true);
+        when(repo.lockForCompletion(anyCollection())).thenAnswer(inv -> {
+            writeBehind.enqueue(1L, 7L, false);
+            return new ArrayList<>(inv.<Collection<Long>>getArgument(0));
+        });
+
+        assertEquals(0, writeBehind.flush());
+
+        verify(repo, never()).updateCompleted(anyCollection(), anyBoolean(), any());
+        assertEquals(1, writeBehind.pendingCount());
+    }
+
+    @Test
+    void enqueue_conLaColaLlena_escribeEnElMomento() throws InterruptedException {
+        writeBehind.shutdown();
+        writeBehind = new TaskCompletionWriteBehind(repo, versionRepo, stats, txManager, events, Duration.ofHours(1), 1);
+        writeBehind.enqueue(1L, 7L, true);
+
+        writeBehind.enqueue(2L, 7L, false);
+
+        verify(repo).updateCompleted(eq(List.of(2L)), eq(false), any());
+        assertEquals(1, writeBehind.pendingCount());
+        // Reemplazar un cambio ya encolado no ocupa lugar
+        writeBehind.enqueue(1L, 7L, false);
+        verify(repo, never()).updateCompleted(eq(List.of(1L)), anyBoolean(), any());
+    }
+
+    @Test
+    void flush_siFallaElUpdate_reencolaLosCambios() {
+        writeBehind.enqueue(1L, 7L, true);
+        when(repo.updateCompleted(anyCollection(), eq(true), any())).thenThrow(new RuntimeException("db caída"));
+
+        assertThrows(RuntimeException.class, () -> writeBehind.flush());
+
+        assertEquals(1, writeBehind.pendingCount());
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    void shutdown_haceFlushFinal() throws InterruptedException {
+        writeBehind.enqueue(3L, 7L, true);
+
+        writeBehind.shutdown();
+
+        verify(repo).updateCompleted(eq(List.of(3L)), eq(true), any(LocalDateTime.class));
+    }
+
+    private static TaskRepository.CompletionChange change(Long userId, LocalDateTime dueDate, long tasks) {
+        return new TaskRepository.CompletionChange() {
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public LocalDateTime getDueDate() {
+                return dueDate;
+            }
+
+            @Override
+            public long getTasks() {
+                return tasks;
+            }
+        };
+    }
+}
@@ -2,14 +2,26 @@ package com.tavio.lemon.service;
 
 
 import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.repository.TaskRepositoryCustom;
+import com.tavio.lemon.domain.repository.TaskTombstoneRepository;
+import com.tavio.lemon.domain.repository.UserTaskVersionRepository;
+import com.tavio.lemon.domain.service.TaskChangeEvent;
+import com.tavio.lemon.domain.service.TaskCompletionWriteBehind;
 import com.tavio.lemon.domain.service.TaskService;
+import com.tavio.lemon.domain.service.TaskStatsService;
 import com.tavio.lemon.entity.TaskEntity;
+import com.tavio.lemon.entity.UserEntity;
+import com.tavio.lemon.web.dto.TaskBatchOperation;
+import com.tavio.lemon.web.dto.TaskDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.web.server.ResponseStatusException;
+
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -22,6 +34,21 @@ class TaskServiceTest {
     @Mock
     private TaskRepository repo;
 
+    @Mock
+    private TaskTombstoneRepository tombstoneRepository;
+
+    @Mock
+    private UserTaskVersionRepository versionRepository;
+
+    @Mock
+    private TaskCompletionWriteBehind completionWriteBehind;
+
+    @Mock
+    private TaskStatsService stats;
+
+    @Mock
+    private ApplicationEventPublisher events;
+
     @InjectMocks
     private TaskService service;
 
@@ -74,8 +101,21 @@ class TaskServiceTest {
         verify(repo).findById(id);
     }
 
+    @Test
+    void getDtoById_deberíaDelegarEnLaProyeccion() {
+        TaskDto dto = TaskDto.builder().id(1L).title("Prueba").userId(42L).build();
+        when(repo.findDtoById(1L)).thenReturn(Optional.of(dto));
+
+        Optional<TaskDto> opt = service.getDtoById(1L);
+
+        assertSame(dto, opt.orElseThrow());
+        verify(repo).findDtoById(1L);
+        verify(repo, never()).findById(any());
+    }
+
     @Test
     void save_deberíaLlamarARepoSave_yDevolverEntidadGuardada() {
+        sampleTask.setUser(UserEntity.builder().id(42L).build());
         when(repo.save(sampleTask)).thenReturn(sampleTask);
 
         TaskEntity guardada = service.save(sampleTask);
@@ -83,15 +123,123 @@ class TaskServiceTest {
         assertNotNull(guardada);
         assertEquals(sampleTask.getTitle(), guardada.getTitle());
         verify(repo).save(sampleTask);
+        verify(versionRepository).bump(42L);
     }
 
     @Test
-    void delete_deberíaLlamarARepoDeleteById() {
-        Long id = 1L;
-        doNothing().when(repo).deleteById(id);
+    void updateOwned_siActualiza_devuelveLaFilaDelUpdateSinReleerla() {
+        TaskDto dto = TaskDto.builder().title("Nueva").build();
+        TaskDto updated = TaskDto.builder().id(1L).title("Nueva").userId(42L).build();
+        when(repo.updateOwned(eq(1L), eq(42L), eq("Nueva"), isNull(), eq(false), isNull(), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new TaskRepositoryCustom.OwnedUpdate(updated, previous(false, null))));
+
+        assertSame(updated, service.updateOwned(1L, 42L, dto));
+        verify(repo, never()).findById(any());
+        verify(repo, never()).findDtoById(any());
+        verify(repo, never()).existsById(any());
+    }
+
+    @Test
+    void updateOwned_siNoAfectaFilasYExiste_lanza403() {
+        when(repo.updateOwned(eq(1L), eq(42L), any(), any(), anyBoolean(), any(), any())).thenReturn(Optional.empty());
+        when(repo.existsById(1L)).thenReturn(true);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.updateOwned(1L, 42L, TaskDto.builder().title("x").build()));
+        assertEquals(403, ex.getStatusCode().value());
+    }
+
+    @Test
+    void deleteOwned_siNoAfectaFilasYNoExiste_lanza404() {
+        when(repo.deleteOwned(1L, 42L)).thenReturn(Optional.empty());
+        when(repo.existsById(1L)).thenReturn(false);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.deleteOwned(1L, 42L));
+        assertEquals(404, ex.getStatusCode().value());
+        verify(completionWriteBehind).discard(1L);
+    }
+
+    @Test
+    void deleteOwned_dejaLapidaAntesDeBorrar() {
+        when(repo.deleteOwned(1L, 42L)).thenReturn(Optional.of(previous(false, null)));
+
+        service.deleteOwned(1L, 42L);
+
+        InOrder order = inOrder(tombstoneRepository, repo);
+        order.verify(tombstoneRepository).insertOwned(eq(1L), eq(42L), any(LocalDateTime.class));
+        order.verify(repo).deleteOwned(1L, 42L);
+        verify(events).publishEvent(argThat((Object e) -> e instanceof TaskChangeEvent change
+                && change.getType() == TaskChangeEvent.Type.DELETED && change.getTaskId() == 1L));
+    }
+
+    @Test
+    void save_tareaNueva_sumaALosContadores() {
+        sampleTask.setId(null);
+        sampleTask.setUser(UserEntity.builder().id(42L).build());
+        when(repo.save(sampleTask)).thenReturn(sampleTask);
+
+        service.save(sampleTask);
+
+        verify(stats).apply(42L, null, new TaskStatsService.TaskState(false, sampleTask.getDueDate()));
+        verify(repo, never()).findStatsState(any());
+    }
+
+    @Test
+    void updateOwned_aplicaLaDiferenciaDesdeElEstadoQueDevuelveElUpdate() {
+        LocalDateTime due = LocalDateTime.of(2025, 5, 23, 12, 0);
+        when(repo.updateOwned(eq(1L), eq(42L), eq("Nueva"), isNull(), eq(true), eq(due), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new TaskRepositoryCustom.OwnedUpdate(
+                        TaskDto.builder().id(1L).userId(42L).build(), previous(false, due))));
+
+        service.updateOwned(1L, 42L, TaskDto.builder().title("Nueva").completed(true).dueDate(due).build());
 
-        service.delete(id);
+        verify(stats).apply(42L, new TaskStatsService.TaskState(false, due), new TaskStatsService.TaskState(true, due));
+        verify(repo, never()).findStatsState(any());
+    }
+
+    @Test
+    void updateOwned_siNoActualiza_noTocaLosContadores() {
+        when(repo.updateOwned(eq(1L), eq(42L), any(), any(), anyBoolean(), any(), any())).thenReturn(Optional.empty());
+        when(repo.existsById(1L)).thenReturn(true);
+
+        assertThrows(ResponseStatusException.class,
+                () -> service.updateOwned(1L, 42L, TaskDto.builder().title("x").build()));
+        verifyNoInteractions(stats);
+    }
+
+    @Test
+    void deleteOwned_descuentaLaTareaDeLosContadores() {
+        when(repo.deleteOwned(1L, 42L)).thenReturn(Optional.of(previous(true, null)));
 
-        verify(repo).deleteById(id);
+        service.deleteOwned(1L, 42L);
+
+        verify(stats).apply(42L, new TaskStatsService.TaskState(true, null), null);
+    }
+
+    private static TaskRepositoryCustom.PreviousState previous(boolean completed, LocalDateTime dueDate) {
+        return new TaskRepositoryCustom.PreviousState(completed, dueDate);
+    }
+
+    @Test
+    void applyBatch_descartaLosCambiosDeCompletedPendientesDeLasTareasQueEscribe() {
+        UserEntity owner = UserEntity.builder().id(42L).build();
+        UserEntity otro = UserEntity.builder().id(7L).build();
+        TaskEntity editar = TaskEntity.builder().id(1L).title("Editar").user(owner).build();
+        TaskEntity borrar = TaskEntity.builder().id(2L).title("Borrar").user(owner).build();
+        TaskEntity ajena = TaskEntity.builder().id(3L).title("Ajena").user(otro).build();
+        when(repo.findAllById(anyCollection())).thenReturn(List.of(editar, borrar, ajena));
+
+        service.applyBatch(42L, List.of(
+                TaskBatchOperation.builder().op(TaskBatchOperation.Type.UPDATE).id(1L)
+                        .task(TaskDto.builder().title("Editada").build()).build(),
+                TaskBatchOperation.builder().op(TaskBatchOperation.Type.DELETE).id(2L).build(),
+                TaskBatchOperation.builder().op(TaskBatchOperation.Type.UPDATE).id(3L)
+                        .task(TaskDto.builder().title("Hack").build()).build()));
+
+        verify(completionWriteBehind).discard(1L);
+        verify(completionWriteBehind).discard(2L);
+        // La de otro usuario no se toca: su cambio pendiente sigue en pie
+        verify(completionWriteBehind, never()).discard(3L);
     }
 }
@@ -0,0 +1,80 @@
+package com.tavio.lemon.service;
+
+import com.tavio.lemon.domain.repository.TaskDueCountRepository;
+import com.tavio.lemon.domain.repository.UserTaskStatsRepository;
+import com.tavio.lemon.domain.service.TaskStatsService;
+import com.tavio.lemon.domain.service.TaskStatsService.TaskState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskStatsServiceTest {
+
+    private static final LocalDateTime LUNES = LocalDateTime.of(2026, 10, 19, 9, 0);
+    private static final LocalDateTime MARTES = LocalDateTime.of(2026, 10, 20, 18, 0);
+
+    @Mock
+    private UserTaskStatsRepository statsRepository;
+
+    @Mock
+    private TaskDueCountRepository dueCountRepository;
+
+    @InjectMocks
+    private TaskStatsService service;
+
+    @Test
+    void apply_tareaNuevaAbierta_sumaTotalYSuDiaDeVencimiento() {
+        service.apply(7L, null, new TaskState(false, LUNES));
+
+        verify(statsRepository).add(7L, 1, 0);
+        verify(dueCountRepository).add(7L, LUNES.toLocalDate(), 1);
+    }
+
+    @Test
+    void apply_moverElVencimiento_soloTocaLosDias() {
+        service.apply(7L, new TaskState(false, LUNES), new TaskState(false, MARTES));
+
+        InOrder order = inOrder(dueCountRepository);
+        order.verify(dueCountRepository).add(7L, LUNES.toLocalDate(), -1);
+        order.verify(dueCountRepository).add(7L, MARTES.toLocalDate(), 1);
+        verifyNoInteractions(statsRepository);
+    }
+
+    @Test
+    void apply_mismoDiaOtraHora_noEscribe() {
+        service.apply(7L, new TaskState(false, LUNES), new TaskState(false, LUNES.plusHours(3)));
+
+        verifyNoInteractions(statsRepository, dueCountRepository);
+    }
+
+    @Test
+    void apply_deltaDeCompletado_agrupaPorDia() {
+        service.apply(7L, new TaskStatsService.Delta()
+                .completion(LUNES, true, 2)
+                .completion(LUNES.plusHours(1), true, 1)
+                .completion(null, false, 1)
+                .completion(null, true, 1));
+
+        verify(statsRepository).add(7L, 0, 3);
+        verify(dueCountRepository).add(7L, LUNES.toLocalDate(), -3);
+        verifyNoMoreInteractions(dueCountRepository);
+    }
+
+    @Test
+    void reconcile_noBorraLosContadoresAntesDeRecalcular() {
+        service.reconcile();
+
+        InOrder order = inOrder(statsRepository, dueCountRepository);
+        order.verify(statsRepository).reconcile();
+        order.verify(dueCountRepository).reconcile();
+        order.verify(dueCountRepository).deleteEmptyDays();
+    }
+}
@@ -0,0 +1,92 @@
+package com.tavio.lemon.service;
+
+import com.tavio.lemon.domain.repository.TaskCursor;
+import com.tavio.lemon.domain.repository.TaskRepository;
+import com.tavio.lemon.domain.repository.TaskTombstoneRepository;
+import com.tavio.lemon.domain.service.TaskSyncService;
+import com.tavio.lemon.web.dto.TaskChangesDto;
+import com.tavio.lemon.web.dto.TaskDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskSyncServiceTest {
+
+    @Mock
+    private TaskRepository taskRepo;
+
+    @Mock
+    private TaskTombstoneRepository tombstoneRepo;
+
+    private TaskSyncService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TaskSyncService(taskRepo, tombstoneRepo, Duration.ofSeconds(5), Duration.ofDays(30));
+    }
+
+    @Test
+    void getChanges_conMasCambiosQueElLimite_devuelveCursorDelUltimo() {
+        LocalDateTime t = LocalDateTime.now().minusMinutes(1);
+        TaskCursor since = new TaskCursor(t.minusMinutes(1), 0L);
+        TaskDto a = TaskDto.builder().id(1L).updatedAt(t).build();
+        TaskDto b = TaskDto.builder().id(2L).updatedAt(t.plusSeconds(1)).build();
+        when(taskRepo.findChangedDtos(7L, since.getTimestamp(), 0L, Limit.of(2)))
+                .thenReturn(List.of(a, b));
+        when(tombstoneRepo.findDeletedIds(7L, since.getTimestamp(), t)).thenReturn(List.of(9L));
+
+        TaskChangesDto changes = service.getChanges(7L, since, 1);
+
+        assertTrue(changes.isHasMore());
+        assertEquals(List.of(a), changes.getUpdated());
+        assertEquals(List.of(9L), changes.getDeleted());
+        assertEquals(new TaskCursor(t, 1L), TaskCursor.decode(changes.getNext()));
+    }
+
+    @Test
+    void getChanges_alTerminar_atrasaElCursorElLag() {
+        TaskCursor since = new TaskCursor(LocalDateTime.now().minusHours(1), 0L);
+        when(taskRepo.findChangedDtos(eq(7L), any(), any(), any())).thenReturn(List.of());
+        when(tombstoneRepo.findDeletedIds(eq(7L), eq(since.getTimestamp()), any())).thenReturn(List.of());
+
+        TaskChangesDto changes = service.getChanges(7L, since, 10);
+
+        assertFalse(changes.isHasMore());
+        LocalDateTime next = TaskCursor.decode(changes.getNext()).getTimestamp();
+        assertTrue(next.isBefore(LocalDateTime.now().minusSeconds(4)));
+        assertTrue(next.isAfter(LocalDateTime.now().minusSeconds(10)));
+    }
+
+    @Test
+    void getChanges_sinSince_noConsultaLapidas() {
+        when(taskRepo.findChangedDtos(eq(7L), any(), eq(0L), any())).thenReturn(List.of());
+
+        TaskChangesDto changes = service.getChanges(7L, null, 10);
+
+        assertEquals(List.of(), changes.getDeleted());
+        verifyNoInteractions(tombstoneRepo);
+    }
+
+    @Test
+    void getChanges_cursorMasViejoQueLaRetencion_lanza410() {
+        TaskCursor since = new TaskCursor(LocalDateTime.now().minusDays(31), 0L);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> service.getChanges(7L, since, 10));
+        assertEquals(410, ex.getStatusCode().value());
+    }
+}
@@ -0,0 +1,127 @@
+package com.tavio.lemon.service;
+
+import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.domain.service.TokenVersionRegistry;
+import com.tavio.lemon.entity.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenVersionRegistryTest {
+
+    @Mock
+    private UserRepository repo;
+
+    @InjectMocks
+    private TokenVersionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        when(repo.findTokenStates()).thenReturn(List.of(state(1L, 0), state(2L, 3)));
+        registry.reload();
+    }
+
+    @Test
+    void isCurrent_conLaTablaCargada_noConsultaLaBase() {
+        assertTrue(registry.isCurrent(1L, 0));
+        assertTrue(registry.isCurrent(2L, 3));
+        assertFalse(registry.isCurrent(2L, 2));
+
+        verify(repo, never()).findTokenState(any());
+    }
+
+    @Test
+    void update_invalidaLosTokensAnterioresSinEsperarLaRecarga() {
+        registry.update(UserEntity.builder().id(1L).tokenVersion(1).build());
+
+        assertFalse(registry.isCurrent(1L, 0));
+        assertTrue(registry.isCurrent(1L, 1));
+    }
+
+    @Test
+    void isCurrent_usuarioNuevo_loBuscaUnaSolaVez() {
+        when(repo.findTokenState(9L)).thenReturn(Optional.of(state(9L, 0)));
+
+        assertTrue(registry.isCurrent(9L, 0));
+        assertTrue(registry.isCurrent(9L, 0));
+
+        verify(repo, times(1)).findTokenState(9L);
+    }
+
+    @Test
+    void isCurrent_usuarioBorrado_rechazaCualquierToken() {
+        when(repo.findTokenState(5L)).thenReturn(Optional.empty());
+
+        assertFalse(registry.isCurrent(5L, 0));
+
+        registry.revoke(2L);
+        assertFalse(registry.isCurrent(2L, 3));
+    }
+
+    @Test
+    void isCurrent_usuarioInexistente_cacheaElRechazo() {
+        when(repo.findTokenState(5L)).thenReturn(Optional.empty());
+
+        assertFalse(registry.isCurrent(5L, 0));
+        assertFalse(registry.isCurrent(5L, 0));
+
+        verify(repo, times(1)).findTokenState(5L);
+    }
+
+    @Test
+    void isCurrent_siUnUpdateLlegaDuranteLaConsulta_gananLosDatosDelUpdate() {
+        when(repo.findTokenState(9L)).thenAnswer(inv -> {
+            registry.update(UserEntity.builder().id(9L).enabled(true).tokenVersion(1).build());
+            return Optional.of(state(9L, 0));
+        });
+
+        assertFalse(registry.isCurrent(9L, 0));
+        assertTrue(registry.isCurrent(9L, 1));
+    }
+
+    @Test
+    void isCurrent_usuarioDeshabilitado_rechazaCualquierToken() {
+        when(repo.findTokenStates()).thenReturn(List.of(state(1L, 0, false)));
+        registry.reload();
+
+        assertFalse(registry.isCurrent(1L, 0));
+
+        registry.update(UserEntity.builder().id(1L).enabled(true).build());
+        assertTrue(registry.isCurrent(1L, 0));
+        registry.update(UserEntity.builder().id(1L).enabled(false).build());
+        assertFalse(registry.isCurrent(1L, 0));
+    }
+
+    private static UserRepository.TokenState state(Long id, int version) {
+        return state(id, version, true);
+    }
+
+    private static UserRepository.TokenState state(Long id, int version, boolean enabled) {
+        return new UserRepository.TokenState() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public int getTokenVersion() {
+                return version;
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return enabled;
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.tavio.lemon.service;
+
+import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.domain.service.UserSecurityService;
+import com.tavio.lemon.entity.Role;
+import com.tavio.lemon.entity.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserSecurityServiceTest {
+
+    @Mock
+    private UserRepository repo;
+
+    private UserSecurityService service;
+
+    private UserEntity sampleUser;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserSecurityService(repo, Duration.ofMinutes(5), 100);
+        sampleUser = UserEntity.builder()
+                .id(7L)
+                .username("pepito")
+                .password("pwd")
+                .role(Role.USER)
+                .enabled(true)
+                .build();
+    }
+
+    @Test
+    void loadUserByUsername_segundaLlamada_noConsultaRepo() {
+        when(repo.findByUsername("pepito")).thenReturn(Optional.of(sampleUser));
+
+        UserDetails first = service.loadUserByUsername("pepito");
+        UserDetails second = service.loadUserByUsername("pepito");
+
+        assertSame(first, second);
+        verify(repo, times(1)).findByUsername("pepito");
+        assertEquals(1, service.getCacheHits());
+    }
+
+    @Test
+    void evict_porId_fuerzaRecargaDesdeRepo() {
+        when(repo.findByUsername("pepito")).thenReturn(Optional.of(sampleUser));
+
+        service.loadUserByUsername("pepito");
+        service.evict(7L);
+        service.loadUserByUsername("pepito");
+
+        verify(repo, times(2)).findByUsername("pepito");
+    }
+
+    @Test
+    void loadUserByUsername_siNoExiste_lanzaExcepcionYNoCachea() {
+        when(repo.findByUsername("maria")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("maria"));
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("maria"));
+        verify(repo, times(2)).findByUsername("maria");
+    }
+}
@@ -1,6 +1,9 @@
 package com.tavio.lemon.service;
 
 import com.tavio.lemon.domain.repository.UserRepository;
+import com.tavio.lemon.domain.service.RefreshTokenService;
+import com.tavio.lemon.domain.service.TokenVersionRegistry;
+import com.tavio.lemon.domain.service.UserSecurityService;
 import com.tavio.lemon.domain.service.UserService;
 import com.tavio.lemon.entity.Role;
 import com.tavio.lemon.entity.UserEntity;
@@ -24,6 +27,15 @@ class UserServiceTest {
     @Mock
     private UserRepository repo;
 
+    @Mock
+    private UserSecurityService userSecurityService;
+
+    @Mock
+    private TokenVersionRegistry tokenVersions;
+
+    @Mock
+    private RefreshTokenService refreshTokens;
+
     @InjectMocks
     private UserService service;
 
@@ -104,6 +116,8 @@ class UserServiceTest {
         assertNotNull(saved);
         assertEquals(sampleUser.getUsername(), saved.getUsername());
         verify(repo).save(sampleUser);
+        verify(userSecurityService).evict(7L);
+        verify(tokenVersions).update(sampleUser);
     }
 
     @Test
@@ -114,5 +128,19 @@ class UserServiceTest {
         service.delete(id);
 
         verify(repo).deleteById(id);
+        verify(userSecurityService).evict(id);
+        verify(tokenVersions).revoke(id);
+    }
+
+    @Test
+    void setEnabled_alDeshabilitar_cierraLasSesiones() {
+        when(repo.findById(7L)).thenReturn(Optional.of(sampleUser));
+        when(repo.save(sampleUser)).thenReturn(sampleUser);
+
+        Optional<UserEntity> opt = service.setEnabled(7L, false);
+
+        assertFalse(opt.orElseThrow().isEnabled());
+        verify(tokenVersions).update(sampleUser);
+        verify(refreshTokens).revokeAll(7L);
     }
 }
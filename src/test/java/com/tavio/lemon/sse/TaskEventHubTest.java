@@ -0,0 +1,123 @@
+package com.tavio.lemon.sse;
+
+import com.tavio.lemon.domain.service.TaskChangeEvent;
+import com.tavio.lemon.web.dto.TaskEventDto;
+import com.tavio.lemon.web.sse.TaskEventHub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskEventHubTest {
+
+    private TaskEventHub hub;
+
+    @AfterEach
+    void tearDown() {
+        hub.destroy();
+    }
+
+    @Test
+    void onTaskChange_soloLlegaALasConexionesDelUsuario() throws Exception {
+        hub = new RecordingHub(8, 5);
+        RecordingEmitter propia = (RecordingEmitter) hub.subscribe(1L);
+        RecordingEmitter ajena = (RecordingEmitter) hub.subscribe(2L);
+
+        hub.onTaskChange(new TaskChangeEvent(TaskChangeEvent.Type.DELETED, 1L, 42L, null));
+
+        TaskEventDto event = propia.nextEvent();
+        assertNotNull(event);
+        assertEquals(TaskChangeEvent.Type.DELETED, event.getType());
+        assertEquals(42L, event.getId());
+        assertNull(ajena.nextEvent());
+        assertEquals(2, hub.getConnectionCount());
+    }
+
+    @Test
+    void subscribe_conDemasiadasConexiones_lanza429() {
+        hub = new RecordingHub(8, 1);
+        hub.subscribe(1L);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> hub.subscribe(1L));
+
+        assertEquals(429, ex.getStatusCode().value());
+        assertEquals(1, hub.getConnectionCount());
+    }
+
+    @Test
+    void onTaskChange_conClienteLento_cierraLaConexionSinBloquear() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        hub = new TaskEventHub(2, 5, Duration.ofMinutes(1), Duration.ofHours(1)) {
+            @Override
+            protected SseEmitter createEmitter(long timeoutMs) {
+                return new SseEmitter(timeoutMs) {
+                    @Override
+                    public void send(SseEventBuilder builder) {
+                        sending.countDown();
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                };
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        hub.bindTo(registry);
+        try {
+            hub.subscribe(1L);
+            // El primer envío queda trabado: lo que sigue se acumula en el buffer de 2
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+            for (long id = 1; id <= 3; id++) {
+                hub.onTaskChange(new TaskChangeEvent(TaskChangeEvent.Type.UPDATED, 1L, id, null));
+            }
+
+            assertEquals(0, hub.getConnectionCount());
+            assertEquals(1, registry.get("tasks.events.dropped").functionCounter().count());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static class RecordingHub extends TaskEventHub {
+        RecordingHub(int bufferSize, int maxPerUser) {
+            super(bufferSize, maxPerUser, Duration.ofMinutes(1), Duration.ofHours(1));
+        }
+
+        @Override
+        protected SseEmitter createEmitter(long timeoutMs) {
+            return new RecordingEmitter(timeoutMs);
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<TaskEventDto> events = new LinkedBlockingQueue<>();
+
+        RecordingEmitter(long timeoutMs) {
+            super(timeoutMs);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            builder.build().stream()
+                    .filter(part -> part.getData() instanceof TaskEventDto)
+                    .forEach(part -> events.add((TaskEventDto) part.getData()));
+        }
+
+        TaskEventDto nextEvent() throws InterruptedException {
+            return events.poll(500, TimeUnit.MILLISECONDS);
+        }
+    }
+}